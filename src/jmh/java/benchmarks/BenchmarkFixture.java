@@ -0,0 +1,68 @@
+package benchmarks;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiForStatement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.JavaCodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.JavaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Light project with the Android stubs the detectors resolve against, shared by the benchmarks to build their PSI.
+ */
+class BenchmarkFixture {
+
+    private final JavaCodeInsightTestFixture fixture;
+
+    private BenchmarkFixture(JavaCodeInsightTestFixture fixture) {
+        this.fixture = fixture;
+    }
+
+    static BenchmarkFixture setUp() throws Exception {
+        TestFixtureBuilder<IdeaProjectTestFixture> builder = IdeaTestFixtureFactory.getFixtureFactory()
+                .createLightFixtureBuilder(LightCodeInsightFixtureTestCase.JAVA_8);
+        JavaCodeInsightTestFixture fixture = JavaTestFixtureFactory.getFixtureFactory()
+                .createCodeInsightFixture(builder.getFixture());
+        EdtTestUtil.runInEdtAndWait(fixture::setUp);
+        BenchmarkFixture benchmarkFixture = new BenchmarkFixture(fixture);
+        for (String stub : BenchmarkSources.ANDROID_STUBS) {
+            benchmarkFixture.addFile(stub);
+        }
+        return benchmarkFixture;
+    }
+
+    void tearDown() throws Exception {
+        EdtTestUtil.runInEdtAndWait(this.fixture::tearDown);
+    }
+
+    PsiFile addFile(String source) throws Exception {
+        PsiFile[] psiFile = new PsiFile[1];
+        EdtTestUtil.runInEdtAndWait(() -> psiFile[0] = this.fixture.addClass(source).getContainingFile());
+        return psiFile[0];
+    }
+
+    static List<PsiForStatement> findForStatements(PsiFile psiFile) {
+        return ReadAction.compute(() -> {
+            Collection<PsiForStatement> forStatements = PsiTreeUtil.findChildrenOfType(psiFile, PsiForStatement.class);
+            return new ArrayList<>(forStatements);
+        });
+    }
+
+    static List<PsiClass> findClasses(PsiFile psiFile) {
+        return ReadAction.compute(() -> {
+            Collection<PsiClass> classes = PsiTreeUtil.findChildrenOfType(psiFile, PsiClass.class);
+            return new ArrayList<>(classes);
+        });
+    }
+
+}
@@ -0,0 +1,154 @@
+package benchmarks;
+
+/**
+ * Generates the Java sources the benchmarks run the detectors over.
+ */
+class BenchmarkSources {
+
+    static final String[] ANDROID_STUBS = {
+            "package android.os;\n" +
+                    "public abstract class AsyncTask<Params, Progress, Result> {\n" +
+                    "    protected abstract Result doInBackground(Params... params);\n" +
+                    "    protected void onPreExecute() {}\n" +
+                    "    protected void onProgressUpdate(Progress... values) {}\n" +
+                    "    protected void onPostExecute(Result result) {}\n" +
+                    "}\n",
+            "package android.view;\n" +
+                    "public class View {\n" +
+                    "    public void setVisibility(int visibility) {}\n" +
+                    "}\n",
+            "package android.widget;\n" +
+                    "public class TextView extends android.view.View {\n" +
+                    "    public void setText(CharSequence text) {}\n" +
+                    "}\n"
+    };
+
+    private BenchmarkSources() {
+    }
+
+    /**
+     * A handful of short loops, one of each kind the Slow Loop detector handles.
+     */
+    static String smallLoops() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package bench;\n");
+        sb.append("import java.util.*;\n");
+        sb.append("public class SmallLoops {\n");
+        sb.append("    int sumArray(int[] values) {\n");
+        sb.append("        int sum = 0;\n");
+        sb.append("        for (int i = 0; i < values.length; i++) {\n");
+        sb.append("            sum += values[i];\n");
+        sb.append("        }\n");
+        sb.append("        return sum;\n");
+        sb.append("    }\n");
+        sb.append("    int sumList(List<Integer> values) {\n");
+        sb.append("        int sum = 0;\n");
+        sb.append("        for (int i = 0; i < values.size(); i++) {\n");
+        sb.append("            sum += values.get(i);\n");
+        sb.append("        }\n");
+        sb.append("        return sum;\n");
+        sb.append("    }\n");
+        sb.append("    int sumIterator(List<Integer> values) {\n");
+        sb.append("        int sum = 0;\n");
+        sb.append("        for (Iterator<Integer> it = values.iterator(); it.hasNext(); ) {\n");
+        sb.append("            Integer value = it.next();\n");
+        sb.append("            sum += value;\n");
+        sb.append("        }\n");
+        sb.append("        return sum;\n");
+        sb.append("    }\n");
+        sb.append("    int countUntil(int[] values, int limit) {\n");
+        sb.append("        int i;\n");
+        sb.append("        for (i = 0; i < values.length; i++) {\n");
+        sb.append("            if (values[i] > limit) {\n");
+        sb.append("                values[i] = limit;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        return i;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Indexed loops nested {@code depth} levels deep, each of which is a Slow Loop in its own right.
+     */
+    static String nestedLoops(int depth) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package bench;\n");
+        sb.append("import java.util.*;\n");
+        sb.append("public class NestedLoops {\n");
+        sb.append("    int visit(");
+        for (int level = 0; level < depth; level++) {
+            if (level > 0) {
+                sb.append(", ");
+            }
+            sb.append("List<String> values").append(level);
+        }
+        sb.append(") {\n");
+        sb.append("        int total = 0;\n");
+        for (int level = 0; level < depth; level++) {
+            indent(sb, level + 2);
+            sb.append("for (int i").append(level).append(" = 0; i").append(level)
+                    .append(" < values").append(level).append(".size(); i").append(level).append("++) {\n");
+            indent(sb, level + 3);
+            sb.append("String value").append(level).append(" = values").append(level)
+                    .append(".get(i").append(level).append(");\n");
+        }
+        indent(sb, depth + 2);
+        sb.append("total += ");
+        for (int level = 0; level < depth; level++) {
+            if (level > 0) {
+                sb.append(" + ");
+            }
+            sb.append("value").append(level).append(".length()");
+        }
+        sb.append(";\n");
+        for (int level = depth - 1; level >= 0; level--) {
+            indent(sb, level + 2);
+            sb.append("}\n");
+        }
+        sb.append("        return total;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * An AsyncTask whose UI methods interleave {@code statements} heavy computations with UI updates.
+     */
+    static String largeAsyncTask(int statements) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package bench;\n");
+        sb.append("import android.os.AsyncTask;\n");
+        sb.append("import android.widget.TextView;\n");
+        sb.append("public class LargeAsyncTask extends AsyncTask<Integer, Integer, Integer> {\n");
+        sb.append("    private TextView label;\n");
+        sb.append("    private int compute(int value) { return value * value; }\n");
+        sb.append("    @Override\n");
+        sb.append("    protected Integer doInBackground(Integer... params) { return params.length; }\n");
+        for (String uiMethod : new String[]{"onPreExecute", "onPostExecute"}) {
+            sb.append("    @Override\n");
+            sb.append("    protected void ").append(uiMethod)
+                    .append(uiMethod.equals("onPreExecute") ? "() {\n" : "(Integer result) {\n");
+            sb.append("        int total = 0;\n");
+            for (int i = 0; i < statements; i++) {
+                if (i % 2 == 0) {
+                    sb.append("        total += compute(").append(i).append(");\n");
+                } else {
+                    sb.append("        label.setText(\"Step ").append(i).append("\");\n");
+                }
+            }
+            sb.append("        label.setVisibility(total);\n");
+            sb.append("    }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void indent(StringBuilder sb, int level) {
+        for (int i = 0; i < level; i++) {
+            sb.append("    ");
+        }
+    }
+
+}
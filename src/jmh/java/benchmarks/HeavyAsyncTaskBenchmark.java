@@ -0,0 +1,47 @@
+package benchmarks;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiClass;
+import detection.DetectHeavyAsyncTask;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Heavy AsyncTask detector on AsyncTask subclasses with increasingly large UI methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeavyAsyncTaskBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int uiMethodStatements;
+
+    private BenchmarkFixture fixture;
+    private List<PsiClass> classes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.fixture = BenchmarkFixture.setUp();
+        this.classes = BenchmarkFixture.findClasses(
+                this.fixture.addFile(BenchmarkSources.largeAsyncTask(this.uiMethodStatements)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.fixture.tearDown();
+    }
+
+    @Benchmark
+    public void checkForHeavyAsyncTask(Blackhole blackhole) {
+        ReadAction.run(() -> {
+            for (PsiClass aClass : this.classes) {
+                blackhole.consume(DetectHeavyAsyncTask.checkForHeavyAsyncTask(aClass));
+            }
+        });
+    }
+
+}
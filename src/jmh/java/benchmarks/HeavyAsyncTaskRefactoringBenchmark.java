@@ -0,0 +1,78 @@
+package benchmarks;
+
+import codesmell.CodeSmell;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiClass;
+import detection.DetectHeavyAsyncTask;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the refactorings of freshly detected Heavy AsyncTasks. The code smells cache their refactorings,
+ * so they are detected again before every invocation and only the refactoring generation itself is timed.
+ * The anchor benchmark measures what a highlighting pass pays for the same code smells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeavyAsyncTaskRefactoringBenchmark {
+
+    @Param({"100", "1000"})
+    public int uiMethodStatements;
+
+    private BenchmarkFixture fixture;
+    private List<PsiClass> classes;
+
+    private List<CodeSmell> heavyAsyncTasks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.fixture = BenchmarkFixture.setUp();
+        this.classes = BenchmarkFixture.findClasses(
+                this.fixture.addFile(BenchmarkSources.largeAsyncTask(this.uiMethodStatements)));
+    }
+
+    @Setup(Level.Invocation)
+    public void detectCodeSmells() {
+        ReadAction.run(() -> {
+            this.heavyAsyncTasks = new ArrayList<>();
+            for (PsiClass aClass : this.classes) {
+                CodeSmell codeSmell = DetectHeavyAsyncTask.checkForHeavyAsyncTask(aClass);
+                if (codeSmell != null) {
+                    this.heavyAsyncTasks.add(codeSmell);
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.fixture.tearDown();
+    }
+
+    @Benchmark
+    public int heavyAsyncTaskRefactorings() {
+        return ReadAction.compute(() -> {
+            int refactorings = 0;
+            for (CodeSmell codeSmell : this.heavyAsyncTasks) {
+                refactorings += codeSmell.getMappingFromPsiElementToRefactoring().size();
+            }
+            return refactorings;
+        });
+    }
+
+    @Benchmark
+    public int heavyAsyncTaskAnchors() {
+        return ReadAction.compute(() -> {
+            int anchors = 0;
+            for (CodeSmell codeSmell : this.heavyAsyncTasks) {
+                anchors += codeSmell.getRefactoringAnchors().size();
+            }
+            return anchors;
+        });
+    }
+
+}
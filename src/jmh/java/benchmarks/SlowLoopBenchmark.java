@@ -0,0 +1,60 @@
+package benchmarks;
+
+import codesmell.slowloop.SlowLoopCodeSmell;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiForStatement;
+import detection.DetectSlowLoop;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Slow Loop detector on every loop of a small file and of deeply nested loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SlowLoopBenchmark {
+
+    @Param({"2", "8", "32"})
+    public int nestingDepth;
+
+    private BenchmarkFixture fixture;
+    private List<PsiForStatement> smallLoops;
+    private List<PsiForStatement> nestedLoops;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.fixture = BenchmarkFixture.setUp();
+        this.smallLoops = BenchmarkFixture.findForStatements(this.fixture.addFile(BenchmarkSources.smallLoops()));
+        this.nestedLoops = BenchmarkFixture.findForStatements(
+                this.fixture.addFile(BenchmarkSources.nestedLoops(this.nestingDepth)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.fixture.tearDown();
+    }
+
+    @Benchmark
+    public void checkForSlowLoopSmallLoops(Blackhole blackhole) {
+        checkForSlowLoop(this.smallLoops, blackhole);
+    }
+
+    @Benchmark
+    public void checkForSlowLoopNestedLoops(Blackhole blackhole) {
+        checkForSlowLoop(this.nestedLoops, blackhole);
+    }
+
+    private static void checkForSlowLoop(List<PsiForStatement> forStatements, Blackhole blackhole) {
+        ReadAction.run(() -> {
+            for (PsiForStatement forStatement : forStatements) {
+                SlowLoopCodeSmell codeSmell = DetectSlowLoop.checkForSlowLoop(forStatement);
+                blackhole.consume(codeSmell);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import codesmell.CodeSmell;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiForStatement;
+import detection.DetectSlowLoop;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the refactorings of freshly detected Slow Loops. The code smells cache their refactorings,
+ * so they are detected again before every invocation and only the refactoring generation itself is timed.
+ * The anchor benchmark measures what a highlighting pass pays for the same code smells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SlowLoopRefactoringBenchmark {
+
+    @Param({"8", "32"})
+    public int nestingDepth;
+
+    private BenchmarkFixture fixture;
+    private List<PsiForStatement> forStatements;
+
+    private List<CodeSmell> slowLoops;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.fixture = BenchmarkFixture.setUp();
+        this.forStatements = new ArrayList<>();
+        this.forStatements.addAll(BenchmarkFixture.findForStatements(this.fixture.addFile(BenchmarkSources.smallLoops())));
+        this.forStatements.addAll(BenchmarkFixture.findForStatements(
+                this.fixture.addFile(BenchmarkSources.nestedLoops(this.nestingDepth))));
+    }
+
+    @Setup(Level.Invocation)
+    public void detectCodeSmells() {
+        ReadAction.run(() -> {
+            this.slowLoops = new ArrayList<>();
+            for (PsiForStatement forStatement : this.forStatements) {
+                CodeSmell codeSmell = DetectSlowLoop.checkForSlowLoop(forStatement);
+                if (codeSmell != null) {
+                    this.slowLoops.add(codeSmell);
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.fixture.tearDown();
+    }
+
+    @Benchmark
+    public int slowLoopRefactorings() {
+        return ReadAction.compute(() -> {
+            int refactorings = 0;
+            for (CodeSmell codeSmell : this.slowLoops) {
+                refactorings += codeSmell.getMappingFromPsiElementToRefactoring().size();
+            }
+            return refactorings;
+        });
+    }
+
+    @Benchmark
+    public int slowLoopAnchors() {
+        return ReadAction.compute(() -> {
+            int anchors = 0;
+            for (CodeSmell codeSmell : this.slowLoops) {
+                anchors += codeSmell.getRefactoringAnchors().size();
+            }
+            return anchors;
+        });
+    }
+
+}
@@ -1,27 +1,41 @@
 package actions;
 
-import codesmell.CodeSmell;
-import com.intellij.ide.highlighter.JavaFileType;
+import codesmell.CodeSmellPointer;
 import com.intellij.notification.NotificationDisplayType;
 import com.intellij.notification.NotificationGroup;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.FileTypeIndex;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.PathUtil;
 import org.jetbrains.annotations.NotNull;
+import profiling.ScanProfiler;
+import scan.CodeSmellScanner;
+import scope.ScanScope;
+import scope.ScanScopeDialog;
+import settings.CodeSmellSettings;
+import toolwindow.CodeSmellResultsView;
 import utils.Constants;
-import utils.Utils;
-import visitors.SourceCodeVisitor;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AddressCodeSmellsAction extends AnAction {
+
+    private static final Logger LOG = Logger.getInstance(AddressCodeSmellsAction.class);
+    static final NotificationGroup NOTIFIER = new NotificationGroup("acsr", NotificationDisplayType.BALLOON, true);
+
     @Override
     public void actionPerformed(AnActionEvent e) {
         // Get all the required data from data keys
@@ -32,71 +46,164 @@ public class AddressCodeSmellsAction extends AnAction {
             return;
         }
 
-        Utils.runOnBackgroundThread(() -> {
-            PsiManager psiManager = PsiManager.getInstance(project);
-            List<PsiFile> files = FileBasedIndex.getInstance()
-                    .getContainingFiles(FileTypeIndex.NAME, JavaFileType.INSTANCE, GlobalSearchScope.projectScope(project))
-                    .stream()
-                    .map(psiManager::findFile)
-                    .collect(Collectors.toList());
+        ScanScopeDialog scopeDialog = new ScanScopeDialog(project, getSelectedModules(e), getSelectedDirectories(e));
+        if (!scopeDialog.showAndGet()) {
+            return;
+        }
 
-            Map<PsiFile, Set<CodeSmell>> identifiedCodeSmells = new HashMap<>();
+        CodeSmellResultsView resultsView = CodeSmellResultsView.getInstance(project);
+        resultsView.clear();
+        resultsView.show();
 
-            for (PsiFile psiFile : files) {
-                if (psiFile == null) {
-                    continue;
-                }
-                SourceCodeVisitor sourceCodeVisitor = new SourceCodeVisitor();
-                psiFile.accept(sourceCodeVisitor);
-                Set<CodeSmell> codeSmells = sourceCodeVisitor.getIdentifiedCodeSmells();
-                if (!codeSmells.isEmpty()) {
-                    identifiedCodeSmells.put(psiFile, codeSmells);
+        ProgressManager.getInstance().run(new DetectCodeSmellsTask(project, scopeDialog.getScope()));
+    }
+
+    private static List<Module> getSelectedModules(AnActionEvent e) {
+        Module[] modules = e.getData(LangDataKeys.MODULE_CONTEXT_ARRAY);
+        return modules == null ? Collections.emptyList() : Arrays.asList(modules);
+    }
+
+    private static List<VirtualFile> getSelectedDirectories(AnActionEvent e) {
+        VirtualFile[] files = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        List<VirtualFile> directories = new ArrayList<>();
+        if (files != null) {
+            for (VirtualFile file : files) {
+                if (file.isDirectory()) {
+                    directories.add(file);
                 }
             }
+        }
+        return directories;
+    }
 
-            int fileCount = 0;
-            int smellCount = 0;
-
-            List<CodeSmell> allCodeSmells = new LinkedList<>();
-
-            for (Map.Entry<PsiFile, Set<CodeSmell>> entry : identifiedCodeSmells.entrySet()) {
-                PsiFile psiFile = entry.getKey();
-                Set<CodeSmell> codeSmells = entry.getValue();
-                for (CodeSmell codeSmell : codeSmells) {
-                    NotificationGroup notifier = new NotificationGroup("acsr", NotificationDisplayType.BALLOON, true);
-                    notifier.createNotification(
-                            "Code Smell in file " + psiFile.getName(),
-                            codeSmell.getInformativeMessage(psiFile),
-                            NotificationType.INFORMATION,
-                            new AutoRefactorListener(project, codeSmell)
-                    ).notify(project);
-                    allCodeSmells.add(codeSmell);
-                    smellCount++;
-                }
-                fileCount++;
+    /**
+     * Collects the Java files of the scope, scans them and publishes the results to the tool window. Finishes with a
+     * single notification summarising what was found.
+     */
+    public static class DetectCodeSmellsTask extends Task.Backgroundable {
+
+        private final List<CodeSmellPointer> allCodeSmells = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger fileCount = new AtomicInteger();
+        private final ScanScope scope;
+        private final ScanProfiler profiler;
+        private String scopeError;
+
+        public DetectCodeSmellsTask(@NotNull Project project) {
+            this(project, ScanScope.project());
+        }
+
+        public DetectCodeSmellsTask(@NotNull Project project, @NotNull ScanScope scope) {
+            super(project, "Detecting code smells in " + scope.getName(), true);
+            this.scope = scope;
+            this.profiler = CodeSmellSettings.getInstance().isProfileScans() ? ScanProfiler.create() : ScanProfiler.DISABLED;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            Project project = getProject();
+            indicator.setText("Collecting Java files");
+            long start = this.profiler.start();
+            Collection<VirtualFile> files;
+            try {
+                files = this.scope.collectFiles(project, indicator);
+            } catch (VcsException e) {
+                this.scopeError = e.getMessage();
+                return;
             }
+            this.profiler.phaseFinished(ScanProfiler.Phase.COLLECT_FILES, start);
+
+            indicator.setText("Detecting code smells");
+            CodeSmellResultsView resultsView = CodeSmellResultsView.getInstance(project);
+            // Publish each file's code smells as soon as it is analyzed, so they can be fixed while the scan continues
+            int parallelism = CodeSmellSettings.getInstance().getScanParallelism();
+            new CodeSmellScanner(project, parallelism, this.profiler).scan(files, indicator, (psiFile, codeSmells) -> {
+                // Only pointers outlive the scan, so the syntax trees of the scanned files can be unloaded
+                List<CodeSmellPointer> pointers = ReadAction.compute(() -> CodeSmellPointer.createAll(codeSmells));
+                resultsView.addCodeSmells(psiFile.getVirtualFile(), pointers);
+                this.allCodeSmells.addAll(pointers);
+                this.fileCount.incrementAndGet();
+            });
+        }
 
-            NotificationGroup notifier = new NotificationGroup("acsr", NotificationDisplayType.BALLOON, true);
-            notifier.createNotification(
-                    getTitle(fileCount, smellCount),
+        @Override
+        public void onFinished() {
+            if (this.scopeError != null) {
+                NOTIFIER.createNotification("Unable to collect the files of " + this.scope.getName(),
+                        StringUtil.escapeXml(this.scopeError), NotificationType.ERROR, null).notify(getProject());
+                return;
+            }
+            // Also runs after a cancellation, summarising whatever was found up to that point
+            List<CodeSmellPointer> codeSmells = getCodeSmells();
+            NOTIFIER.createNotification(
+                    getTitle(this.scope, this.fileCount.get(), codeSmells.size()),
                     getContent(),
                     NotificationType.INFORMATION,
-                    new AutoRefactorListener(project, allCodeSmells)
-            ).notify(project);
-        });
-    }
+                    new AutoRefactorListener(getProject(), codeSmells)
+            ).notify(getProject());
+            if (this.profiler.isEnabled()) {
+                LOG.info("Code smell scan profile:\n" + this.profiler.getReport(Constants.PROFILE_REPORT_MAX_FILES));
+                NOTIFIER.createNotification(
+                        "Code smell scan profile",
+                        getProfileContent(this.profiler),
+                        NotificationType.INFORMATION,
+                        new ScanProfileListener(getProject(), this.profiler)
+                ).notify(getProject());
+            }
+        }
+
+        public List<CodeSmellPointer> getCodeSmells() {
+            synchronized (this.allCodeSmells) {
+                return new ArrayList<>(this.allCodeSmells);
+            }
+        }
 
+        public int getFileCount() {
+            return this.fileCount.get();
+        }
+
+    }
 
     @NotNull
-    private String getContent() {
+    private static String getContent() {
         StringBuilder sb = new StringBuilder();
         sb.append("To refactor all identified code smells, please click <a href=\"");
         sb.append(Constants.REFACTOR_TRIGGER);
         sb.append("\">here</a>.");
+        sb.append('\n');
+        sb.append("To browse them, open the <a href=\"");
+        sb.append(Constants.SHOW_RESULTS_TRIGGER);
+        sb.append("\">");
+        sb.append(Constants.TOOL_WINDOW_ID);
+        sb.append("</a> tool window.");
         return sb.toString();
     }
 
-    private String getTitle(int fileCount, int smellCount) {
+    @NotNull
+    private static String getProfileContent(ScanProfiler profiler) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Slowest detectors:");
+        for (Map.Entry<String, Long> detector : profiler.getSlowestDetectors()) {
+            sb.append("<br/>");
+            sb.append(detector.getKey());
+            sb.append(": ");
+            sb.append(detector.getValue());
+            sb.append(" ms");
+        }
+        sb.append("<br/>Slowest files:");
+        for (Map.Entry<String, Long> file : profiler.getSlowestFiles(Constants.PROFILE_SUMMARY_MAX_FILES)) {
+            sb.append("<br/>");
+            sb.append(StringUtil.escapeXml(PathUtil.getFileName(file.getKey())));
+            sb.append(": ");
+            sb.append(file.getValue());
+            sb.append(" ms");
+        }
+        sb.append("<br/><a href=\"");
+        sb.append(Constants.EXPORT_TRACE_TRIGGER);
+        sb.append("\">Export the timeline</a> in Chrome trace format.");
+        return sb.toString();
+    }
+
+    private static String getTitle(ScanScope scope, int fileCount, int smellCount) {
         StringBuilder sb = new StringBuilder();
         sb.append(smellCount);
         sb.append(' ');
@@ -110,7 +217,11 @@ public class AddressCodeSmellsAction extends AnAction {
             sb.append("were");
         }
         sb.append(' ');
-        sb.append("identified in the project across");
+        sb.append("identified in");
+        sb.append(' ');
+        sb.append(scope.getName());
+        sb.append(' ');
+        sb.append("across");
         sb.append(' ');
         sb.append(fileCount);
         sb.append(' ');
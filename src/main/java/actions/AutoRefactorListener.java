@@ -1,33 +1,37 @@
 package actions;
 
-import codesmell.CodeSmell;
+import codesmell.CodeSmellPointer;
 import com.intellij.ide.BrowserUtil;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationListener;
-import com.intellij.openapi.command.WriteCommandAction;
-import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import org.jetbrains.annotations.NotNull;
+import refactoring.BatchRefactoring;
+import refactoring.FileRefactoring;
+import refactoring.RefactoringPreviewDialog;
+import settings.CodeSmellSettings;
+import toolwindow.CodeSmellResultsView;
 import utils.Constants;
-import utils.Utils;
 
 import javax.swing.event.HyperlinkEvent;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 public class AutoRefactorListener implements NotificationListener {
 
     private Project project;
-    private List<CodeSmell> codeSmells = new LinkedList<>();
+    private List<CodeSmellPointer> codeSmells = new LinkedList<>();
 
-    public AutoRefactorListener(Project project, CodeSmell codeSmell) {
+    public AutoRefactorListener(Project project, CodeSmellPointer codeSmell) {
         this.project = project;
         this.codeSmells.add(codeSmell);
     }
 
-    public AutoRefactorListener(Project project, List<CodeSmell> codeSmells) {
+    public AutoRefactorListener(Project project, List<CodeSmellPointer> codeSmells) {
         this.project = project;
         this.codeSmells = codeSmells;
     }
@@ -36,22 +40,49 @@ public class AutoRefactorListener implements NotificationListener {
     @Override
     public void hyperlinkUpdate(@NotNull Notification notification, @NotNull HyperlinkEvent event) {
         if (event.getDescription().equals(Constants.REFACTOR_TRIGGER)) {
-            WriteCommandAction.runWriteCommandAction(this.project, () -> {
-                for (CodeSmell codeSmell : this.codeSmells) {
-                    Utils.refactorCodeSegment(this.project, codeSmell.getMappingFromPsiElementToRefactoring());
-                }
-            });
+            PsiDocumentManager.getInstance(this.project).commitAllDocuments();
+            ProgressManager.getInstance().run(new PrepareRefactoringsTask(this.project, this.codeSmells));
         } else if (event.getDescription().equals(Constants.NAVIGATE_TRIGGER)) {
-            CodeSmell codeSmell = this.codeSmells.get(0);
-            Map<PsiElement, String> refactoringMapping = codeSmell.getMappingFromPsiElementToRefactoring();
-            for (PsiElement element : refactoringMapping.keySet()) {
-                OpenFileDescriptor fileDescriptor = new OpenFileDescriptor(this.project, element.getContainingFile().getVirtualFile(), element.getTextOffset());
-                fileDescriptor.navigate(true);
-                break;
-            }
+            this.codeSmells.get(0).navigate(this.project);
+        } else if (event.getDescription().equals(Constants.SHOW_RESULTS_TRIGGER)) {
+            CodeSmellResultsView.getInstance(this.project).show();
         } else {
             BrowserUtil.launchBrowser(event.getURL().toExternalForm());
         }
     }
 
+    /**
+     * Builds every replacement in background read actions, then lets the user review them file by file. Only the
+     * accepted files are edited, in a single short write command.
+     */
+    private static class PrepareRefactoringsTask extends Task.Backgroundable {
+
+        private final List<CodeSmellPointer> codeSmells;
+        private BatchRefactoring refactoring;
+
+        private PrepareRefactoringsTask(@NotNull Project project, List<CodeSmellPointer> codeSmells) {
+            super(project, "Preparing refactorings", true);
+            this.codeSmells = codeSmells;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            int parallelism = CodeSmellSettings.getInstance().getScanParallelism();
+            this.refactoring = BatchRefactoring.prepareInParallel(getProject(), this.codeSmells, parallelism, indicator);
+        }
+
+        @Override
+        public void onSuccess() {
+            List<FileRefactoring> fileRefactorings = this.refactoring.getFileRefactorings();
+            if (fileRefactorings.isEmpty()) {
+                return;
+            }
+            RefactoringPreviewDialog dialog = new RefactoringPreviewDialog(getProject(), fileRefactorings);
+            if (dialog.showAndGet()) {
+                this.refactoring.apply(dialog.getSelectedFileRefactorings());
+            }
+        }
+
+    }
+
 }
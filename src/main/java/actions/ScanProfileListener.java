@@ -0,0 +1,53 @@
+package actions;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationListener;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import org.jetbrains.annotations.NotNull;
+import profiling.ScanProfiler;
+import utils.Constants;
+
+import javax.swing.event.HyperlinkEvent;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+public class ScanProfileListener implements NotificationListener {
+
+    private static final Logger LOG = Logger.getInstance(ScanProfileListener.class);
+
+    private final Project project;
+    private final ScanProfiler profiler;
+
+    public ScanProfileListener(Project project, ScanProfiler profiler) {
+        this.project = project;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void hyperlinkUpdate(@NotNull Notification notification, @NotNull HyperlinkEvent event) {
+        if (!Constants.EXPORT_TRACE_TRIGGER.equals(event.getDescription())) {
+            return;
+        }
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Scan Timeline",
+                "Save the scan timeline as a Chrome trace event file", "json");
+        VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, this.project)
+                .save(null, "code-smell-scan-trace.json");
+        if (target == null) {
+            return;
+        }
+        File file = target.getFile();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            this.profiler.writeTrace(writer);
+        } catch (IOException e) {
+            LOG.warn("Unable to export the scan timeline", e);
+            Messages.showErrorDialog(this.project, "Unable to write " + file.getPath() + ": " + e.getMessage(),
+                    "Export Scan Timeline");
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package actions;
+
+import baseline.BaselineManager;
+import baseline.CodeSmellBaseline;
+import codesmell.CodeSmell;
+import codesmell.CodeSmellFingerprint;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import profiling.ScanProfiler;
+import scan.CodeSmellScanner;
+import scope.ScanScope;
+import settings.CodeSmellSettings;
+import toolwindow.CodeSmellResultsView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Accepts every code smell currently in the project by recording it in the baseline, the IDE counterpart of
+ * {@code detect-code-smells --write-baseline}. The whole project is scanned regardless of what the tool window
+ * lists, as the baseline replaces the accepted code smells of every file.
+ */
+public class WriteBaselineAction extends AnAction {
+
+    @Override
+    public void update(AnActionEvent e) {
+        Project project = e.getProject();
+        e.getPresentation().setEnabled(project != null && BaselineManager.getInstance(project).getBaselineFile() != null);
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        File baselineFile = BaselineManager.getInstance(project).getBaselineFile();
+        if (baselineFile == null) {
+            return;
+        }
+        int answer = Messages.showYesNoDialog(project,
+                "Record every code smell in the project in " + baselineFile.getName()
+                        + "? Only code smells missing from it will be reported from then on.",
+                "Accept Code Smells into Baseline", Messages.getQuestionIcon());
+        if (answer == Messages.YES) {
+            ProgressManager.getInstance().run(new WriteBaselineTask(project, baselineFile));
+        }
+    }
+
+    private static class WriteBaselineTask extends Task.Backgroundable {
+
+        private final File baselineFile;
+        private final List<CodeSmellFingerprint> fingerprints = Collections.synchronizedList(new ArrayList<>());
+        private String error;
+
+        private WriteBaselineTask(@NotNull Project project, File baselineFile) {
+            super(project, "Accepting code smells into the baseline", true);
+            this.baselineFile = baselineFile;
+        }
+
+        @Override
+        public void run(@NotNull ProgressIndicator indicator) {
+            Project project = getProject();
+            indicator.setText("Collecting Java files");
+            Collection<VirtualFile> files;
+            try {
+                files = ScanScope.project().collectFiles(project, indicator);
+            } catch (VcsException e) {
+                this.error = e.getMessage();
+                return;
+            }
+
+            indicator.setText("Detecting code smells");
+            int parallelism = CodeSmellSettings.getInstance().getScanParallelism();
+            // Code smells already in the baseline are accepted again, so they must not be filtered out
+            new CodeSmellScanner(project, parallelism, ScanProfiler.DISABLED, CodeSmellBaseline.EMPTY)
+                    .scan(files, indicator, (psiFile, codeSmells) -> {
+                        for (CodeSmell codeSmell : codeSmells) {
+                            this.fingerprints.add(codeSmell.getFingerprint());
+                        }
+                    });
+
+            indicator.setText("Writing the baseline");
+            try {
+                CodeSmellBaseline.write(this.baselineFile, project.getBasePath(), this.fingerprints);
+            } catch (IOException e) {
+                this.error = e.getMessage();
+                return;
+            }
+            // The baseline manager picks the new contents up from the VFS, which only sees them once refreshed
+            VirtualFile virtualFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(this.baselineFile);
+            if (virtualFile != null) {
+                virtualFile.refresh(false, false);
+            }
+        }
+
+        @Override
+        public void onSuccess() {
+            if (this.error != null) {
+                AddressCodeSmellsAction.NOTIFIER.createNotification("Unable to write the code smell baseline",
+                        StringUtil.escapeXml(this.error), NotificationType.ERROR, null).notify(getProject());
+                return;
+            }
+            // Everything listed has just been accepted
+            CodeSmellResultsView.getInstance(getProject()).clear();
+            AddressCodeSmellsAction.NOTIFIER.createNotification("Code smell baseline written",
+                    this.fingerprints.size() + " code smell(s) accepted into " + this.baselineFile.getName(),
+                    NotificationType.INFORMATION, null).notify(getProject());
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package baseline;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import utils.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds the baseline checked into the project directory, see {@link Constants#BASELINE_FILE_NAME}. The file is
+ * watched through the VFS and read again on a background thread whenever it changes, e.g. after a checkout, so
+ * {@link #getBaseline()} never touches the disk. An absent or unreadable file means no baseline.
+ */
+public class BaselineManager implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(BaselineManager.class);
+
+    private final Project project;
+    // A single thread, so the file is never read twice at the same time and the last read wins
+    private final ExecutorService loader = AppExecutorUtil.createBoundedApplicationPoolExecutor(Constants.BASELINE_POOL_NAME, 1);
+    private volatile CodeSmellBaseline baseline = CodeSmellBaseline.EMPTY;
+
+    public BaselineManager(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                File file = getBaselineFile();
+                if (file != null && isAffected(events, file)) {
+                    reload();
+                }
+            }
+        });
+        reload();
+    }
+
+    public static BaselineManager getInstance(Project project) {
+        return ServiceManager.getService(project, BaselineManager.class);
+    }
+
+    /**
+     * @return the file the baseline of the project is kept in, or null for projects without a directory
+     */
+    public File getBaselineFile() {
+        String basePath = this.project.getBasePath();
+        return basePath == null ? null : new File(basePath, Constants.BASELINE_FILE_NAME);
+    }
+
+    /**
+     * @return the baseline as last read, which stays empty until the file has been read for the first time
+     */
+    public CodeSmellBaseline getBaseline() {
+        return this.baseline;
+    }
+
+    private static boolean isAffected(List<? extends VFileEvent> events, File file) {
+        String path = file.getPath().replace(File.separatorChar, '/');
+        for (VFileEvent event : events) {
+            // Files moved or renamed to the baseline only have its path once the event has happened
+            VirtualFile virtualFile = event.getFile();
+            if (path.equals(event.getPath()) || virtualFile != null && path.equals(virtualFile.getPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reload() {
+        this.loader.execute(this::load);
+    }
+
+    private void load() {
+        if (this.project.isDisposed()) {
+            return;
+        }
+        File file = getBaselineFile();
+        // Refreshing also makes the VFS aware of a baseline it has not seen yet, so its changes are reported
+        VirtualFile virtualFile = file == null ? null : LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file);
+        CodeSmellBaseline baseline = CodeSmellBaseline.EMPTY;
+        if (virtualFile != null && !virtualFile.isDirectory()) {
+            try {
+                baseline = CodeSmellBaseline.read(file, this.project.getBasePath());
+            } catch (IOException e) {
+                LOG.warn("Unable to read the code smell baseline, reporting every code smell", e);
+            }
+        }
+        CodeSmellBaseline previous = this.baseline;
+        this.baseline = baseline;
+        if (previous.size() > 0 || baseline.size() > 0) {
+            // Files already highlighted against the previous baseline are highlighted again
+            ApplicationManager.getApplication().invokeLater(() -> DaemonCodeAnalyzer.getInstance(this.project).restart(),
+                    this.project.getDisposed());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        // The VFS listener is disconnected along with the project, and pending loads stop once it is disposed
+    }
+
+    /**
+     * Reads the baseline as the project opens, rather than on the first highlighting pass.
+     */
+    public static class Starter implements StartupActivity {
+
+        @Override
+        public void runActivity(@NotNull Project project) {
+            getInstance(project);
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package baseline;
+
+import codesmell.CodeSmell;
+import codesmell.CodeSmellFingerprint;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Code smells accepted as they are, so that scans only report new ones. Each code smell is recorded by a 64-bit key
+ * derived from its {@link CodeSmellFingerprint}, with the file path made relative to the project, so the baseline
+ * can be shared through version control and still matches after unrelated edits shift the code around.
+ * <p>
+ * The keys are held in a sorted array: a baseline of 100k code smells takes under a megabyte and each lookup is a
+ * binary search, with no PSI involved.
+ * <p>
+ * The file holds one code smell per line: the key in hexadecimal, followed by the kind and relative path of the
+ * code smell for reviewers, which are ignored when reading. Lines starting with {@code #} are comments.
+ */
+public class CodeSmellBaseline {
+
+    public static final CodeSmellBaseline EMPTY = new CodeSmellBaseline(new long[0], "");
+
+    private static final String HEADER = "# Accepted code smells, only new ones are reported. Regenerate with detect-code-smells --write-baseline";
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] keys;
+    private final String basePath;
+
+    private CodeSmellBaseline(long[] keys, String basePath) {
+        this.keys = keys;
+        this.basePath = basePath;
+    }
+
+    /**
+     * @param basePath the project directory the paths of the code smells are relative to, null if there is none
+     */
+    public static CodeSmellBaseline read(File file, String basePath) throws IOException {
+        long[] keys = new long[1024];
+        int size = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int end = line.indexOf(' ');
+                String key = end < 0 ? line : line.substring(0, end);
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+                try {
+                    keys[size++] = Long.parseUnsignedLong(key, 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid baseline entry in " + file + ": " + line, e);
+                }
+            }
+        }
+        keys = Arrays.copyOf(keys, size);
+        Arrays.sort(keys);
+        return new CodeSmellBaseline(keys, basePath);
+    }
+
+    /**
+     * Records the code smells as the new baseline, sorted by file so that changes to it are easy to review.
+     */
+    public static void write(File file, String basePath, Collection<CodeSmellFingerprint> fingerprints) throws IOException {
+        SortedMap<String, List<String>> linesByPath = new TreeMap<>();
+        for (CodeSmellFingerprint fingerprint : fingerprints) {
+            String relativePath = getRelativePath(fingerprint, basePath);
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%016x", getKey(fingerprint, relativePath)));
+            sb.append(' ');
+            sb.append(fingerprint.getKind().replace(" ", ""));
+            sb.append(' ');
+            sb.append(relativePath);
+            linesByPath.computeIfAbsent(relativePath, p -> new ArrayList<>()).add(sb.toString());
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (List<String> lines : linesByPath.values()) {
+                Collections.sort(lines);
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    public boolean contains(CodeSmellFingerprint fingerprint) {
+        if (this.keys.length == 0) {
+            return false;
+        }
+        long key = getKey(fingerprint, getRelativePath(fingerprint, this.basePath));
+        return Arrays.binarySearch(this.keys, key) >= 0;
+    }
+
+    /**
+     * @return the code smells missing from the baseline, or the given set itself if none is in it
+     */
+    public Set<CodeSmell> filterNew(Set<CodeSmell> codeSmells) {
+        if (this.keys.length == 0 || codeSmells.isEmpty()) {
+            return codeSmells;
+        }
+        Set<CodeSmell> newCodeSmells = new LinkedHashSet<>();
+        for (CodeSmell codeSmell : codeSmells) {
+            if (!contains(codeSmell.getFingerprint())) {
+                newCodeSmells.add(codeSmell);
+            }
+        }
+        return newCodeSmells.size() == codeSmells.size() ? codeSmells : Collections.unmodifiableSet(newCodeSmells);
+    }
+
+    public int size() {
+        return this.keys.length;
+    }
+
+    private static String getRelativePath(CodeSmellFingerprint fingerprint, String basePath) {
+        String filePath = fingerprint.getFilePath();
+        if (basePath != null && !basePath.isEmpty() && filePath.startsWith(basePath) && filePath.length() > basePath.length()
+                && filePath.charAt(basePath.length()) == '/') {
+            return filePath.substring(basePath.length() + 1);
+        }
+        return filePath;
+    }
+
+    private static long getKey(CodeSmellFingerprint fingerprint, String relativePath) {
+        // 64-bit FNV-1a over every part of the fingerprint, which keeps accidental collisions out of reach
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, fingerprint.getKind());
+        hash = hash(hash, relativePath);
+        hash = hash(hash, fingerprint.getMemberPath());
+        hash = hash(hash, fingerprint.getStructuralHash());
+        return hash(hash, fingerprint.getOccurrence());
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = hash(hash, value.charAt(i));
+        }
+        // Separates the parts, so that moving characters from one part to the next changes the key
+        return hash(hash, 0);
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
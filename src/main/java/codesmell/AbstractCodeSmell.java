@@ -12,19 +12,31 @@ public abstract class AbstractCodeSmell implements CodeSmell {
 
     protected Map<PsiElement, String> refactoringMappings;
     private boolean isRefactoringsUpToDate;
+    private CodeSmellFingerprint fingerprint;
 
-    protected AbstractCodeSmell() {
-        this.refactoringMappings = new HashMap<>();
+    /**
+     * @param kind   the name of the code smell
+     * @param anchor the element identifying the code smell, see {@link CodeSmellFingerprint}
+     */
+    protected AbstractCodeSmell(String kind, PsiElement anchor) {
+        this(CodeSmellFingerprint.create(kind, anchor));
+    }
+
+    protected AbstractCodeSmell(CodeSmellFingerprint fingerprint) {
         this.isRefactoringsUpToDate = false;
+        this.fingerprint = fingerprint;
     }
 
     protected static int getLineNum(PsiFile psifile, PsiElement element) {
         return StringUtil.offsetToLineNumber(psifile.getText(), element.getTextOffset()) + 1;
     }
 
+    // Synchronized as smells found by the parallel scanner can be queried from several threads at once
     @Override
-    public Map<PsiElement, String> getMappingFromPsiElementToRefactoring() {
+    public synchronized Map<PsiElement, String> getMappingFromPsiElementToRefactoring() {
         if (!this.isRefactoringsUpToDate) {
+            // Most code smells are only ever highlighted, so the map is not even allocated until it is needed
+            this.refactoringMappings = new HashMap<>();
             updateRefactorings();
             this.isRefactoringsUpToDate = true;
         }
@@ -33,4 +45,27 @@ public abstract class AbstractCodeSmell implements CodeSmell {
 
     protected abstract void updateRefactorings();
 
+    @Override
+    public CodeSmellFingerprint getFingerprint() {
+        return this.fingerprint;
+    }
+
+    /**
+     * Tells apart identical code smells found in the same member. Must only be called before the code smell is
+     * added to any set or map.
+     */
+    public void setOccurrence(int occurrence) {
+        this.fingerprint = this.fingerprint.withOccurrence(occurrence);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CodeSmell && this.fingerprint.equals(((CodeSmell) obj).getFingerprint());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.fingerprint.hashCode();
+    }
+
 }
\ No newline at end of file
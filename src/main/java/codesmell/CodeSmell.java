@@ -4,14 +4,34 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.siyeh.ig.psiutils.CommentTracker;
 
+import java.util.Collection;
 import java.util.Map;
 
 public interface CodeSmell {
 
+    String getName();
+
     String getInformativeMessage(PsiFile psiFile);
 
     String getShortDescription();
 
+    /**
+     * The elements replaced by the refactoring, without building the refactored code. All highlighting needs.
+     */
+    Collection<PsiElement> getRefactoringAnchors();
+
+    /**
+     * Builds the refactored code of each anchor on first use, so only call it to apply or preview the refactoring.
+     */
     Map<PsiElement, String> getMappingFromPsiElementToRefactoring();
 
+    PsiElement getNavigationElement();
+
+    boolean isValid();
+
+    /**
+     * Identity used for equality, deduplication and matching the code smell across scans.
+     */
+    CodeSmellFingerprint getFingerprint();
+
 }
\ No newline at end of file
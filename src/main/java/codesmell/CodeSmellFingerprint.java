@@ -0,0 +1,151 @@
+package codesmell;
+
+import com.intellij.psi.*;
+
+/**
+ * Identity of a code smell that is cheap to compare and survives rescans: the kind of code smell, the file, the
+ * members enclosing it and a hash of the tokens of the elements identifying it, ignoring whitespace and comments.
+ * Identical code smells within the same member are told apart by the order in which they were found.
+ */
+public final class CodeSmellFingerprint {
+
+    private final String kind;
+    private final String filePath;
+    private final String memberPath;
+    private final long structuralHash;
+    private final int occurrence;
+    private final int hashCode;
+
+    private CodeSmellFingerprint(String kind, String filePath, String memberPath, long structuralHash, int occurrence) {
+        this.kind = kind;
+        this.filePath = filePath;
+        this.memberPath = memberPath;
+        this.structuralHash = structuralHash;
+        this.occurrence = occurrence;
+        int hashCode = kind.hashCode();
+        hashCode = 31 * hashCode + filePath.hashCode();
+        hashCode = 31 * hashCode + memberPath.hashCode();
+        hashCode = 31 * hashCode + Long.hashCode(structuralHash);
+        this.hashCode = 31 * hashCode + occurrence;
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @param kind   the name of the code smell
+     * @param anchor the element whose tokens identify the code smell within its enclosing members
+     */
+    public static CodeSmellFingerprint create(String kind, PsiElement anchor) {
+        return new CodeSmellFingerprint(kind, getFilePath(anchor), getMemberPath(anchor), getStructuralHash(17, anchor), 0);
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @param kind     the name of the code smell
+     * @param location the element whose file and enclosing members locate the code smell
+     * @param parts    the elements whose tokens identify the code smell within those members, which may be null
+     */
+    public static CodeSmellFingerprint create(String kind, PsiElement location, PsiElement... parts) {
+        long structuralHash = 17;
+        for (PsiElement part : parts) {
+            structuralHash = part == null ? 31 * structuralHash : getStructuralHash(structuralHash, part);
+        }
+        return new CodeSmellFingerprint(kind, getFilePath(location), getMemberPath(location), structuralHash, 0);
+    }
+
+    public CodeSmellFingerprint withOccurrence(int occurrence) {
+        return new CodeSmellFingerprint(this.kind, this.filePath, this.memberPath, this.structuralHash, occurrence);
+    }
+
+    public String getKind() {
+        return this.kind;
+    }
+
+    public String getFilePath() {
+        return this.filePath;
+    }
+
+    public String getMemberPath() {
+        return this.memberPath;
+    }
+
+    public long getStructuralHash() {
+        return this.structuralHash;
+    }
+
+    public int getOccurrence() {
+        return this.occurrence;
+    }
+
+    private static String getFilePath(PsiElement anchor) {
+        PsiFile psiFile = anchor.getContainingFile();
+        return psiFile == null ? "" : psiFile.getViewProvider().getVirtualFile().getPath();
+    }
+
+    private static String getMemberPath(PsiElement anchor) {
+        StringBuilder sb = new StringBuilder();
+        for (PsiElement element = anchor; element != null && !(element instanceof PsiFile); element = element.getParent()) {
+            if (element instanceof PsiMember) {
+                String name = ((PsiMember) element).getName();
+                sb.insert(0, name == null ? "$" : name);
+                sb.insert(0, '.');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long getStructuralHash(long initialHash, PsiElement anchor) {
+        long[] hash = {initialHash};
+        anchor.accept(new PsiRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitElement(PsiElement element) {
+                if (element instanceof PsiWhiteSpace || element instanceof PsiComment) {
+                    return;
+                }
+                if (element.getFirstChild() == null) {
+                    hash[0] = 31 * hash[0] + element.getText().hashCode();
+                }
+                super.visitElement(element);
+            }
+        });
+        return hash[0];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CodeSmellFingerprint)) {
+            return false;
+        }
+        CodeSmellFingerprint that = (CodeSmellFingerprint) obj;
+        return this.hashCode == that.hashCode && this.structuralHash == that.structuralHash
+                && this.occurrence == that.occurrence && this.kind.equals(that.kind)
+                && this.memberPath.equals(that.memberPath) && this.filePath.equals(that.filePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.kind);
+        sb.append(':');
+        sb.append(this.filePath);
+        sb.append('#');
+        sb.append(this.memberPath);
+        sb.append(':');
+        sb.append(Long.toHexString(this.structuralHash));
+        if (this.occurrence > 0) {
+            sb.append(':');
+            sb.append(this.occurrence);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,145 @@
+package codesmell;
+
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Segment;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import org.jetbrains.annotations.Nullable;
+import scan.CodeSmellCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact handle to a code smell that outlives the scan which found it. Holds the fingerprint, the texts shown to
+ * the user and a smart pointer to the navigation element, but no PSI, so keeping the results of a whole project
+ * does not keep the syntax trees of every affected file in memory. The full code smell is only recomputed by
+ * {@link #resolve()}, when it is about to be refactored.
+ */
+public final class CodeSmellPointer {
+
+    private final CodeSmellFingerprint fingerprint;
+    private final String shortDescription;
+    private final SmartPsiElementPointer<PsiElement> navigationPointer;
+
+    private CodeSmellPointer(CodeSmellFingerprint fingerprint, String shortDescription,
+                             SmartPsiElementPointer<PsiElement> navigationPointer) {
+        this.fingerprint = fingerprint;
+        this.shortDescription = shortDescription;
+        this.navigationPointer = navigationPointer;
+    }
+
+    /**
+     * Must be called inside a read action.
+     */
+    public static CodeSmellPointer create(CodeSmell codeSmell) {
+        PsiElement navigationElement = codeSmell.getNavigationElement();
+        SmartPsiElementPointer<PsiElement> navigationPointer = SmartPointerManager.getInstance(navigationElement.getProject())
+                .createSmartPsiElementPointer(navigationElement);
+        return new CodeSmellPointer(codeSmell.getFingerprint(), codeSmell.getShortDescription(), navigationPointer);
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @return pointers to the code smells that are still valid
+     */
+    public static List<CodeSmellPointer> createAll(Collection<? extends CodeSmell> codeSmells) {
+        List<CodeSmellPointer> pointers = new ArrayList<>(codeSmells.size());
+        for (CodeSmell codeSmell : codeSmells) {
+            // A write action may have slipped in since the file was analyzed
+            if (codeSmell.isValid()) {
+                pointers.add(create(codeSmell));
+            }
+        }
+        return pointers;
+    }
+
+    public CodeSmellFingerprint getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public String getName() {
+        return this.fingerprint.getKind();
+    }
+
+    public String getShortDescription() {
+        return this.shortDescription;
+    }
+
+    public VirtualFile getVirtualFile() {
+        return this.navigationPointer.getVirtualFile();
+    }
+
+    /**
+     * @return the offset of the code smell in its file, tracked through edits without loading the file's PSI,
+     * or -1 if the code has since been removed
+     */
+    public int getOffset() {
+        Segment range = this.navigationPointer.getRange();
+        return range == null ? -1 : range.getStartOffset();
+    }
+
+    /**
+     * @return whether the code smell could still be located, the editor being opened if so
+     */
+    public boolean navigate(Project project) {
+        VirtualFile virtualFile = getVirtualFile();
+        int offset = getOffset();
+        if (virtualFile == null || !virtualFile.isValid() || offset < 0) {
+            return false;
+        }
+        new OpenFileDescriptor(project, virtualFile, offset).navigate(true);
+        return true;
+    }
+
+    /**
+     * Reanalyzes the file to recover the full code smell, matching it by fingerprint or, after the code around it
+     * was edited, by its navigation element. Must be called inside a read action.
+     *
+     * @return the code smell, or null if it no longer exists
+     */
+    @Nullable
+    public CodeSmell resolve() {
+        PsiElement navigationElement = this.navigationPointer.getElement();
+        if (navigationElement == null) {
+            return null;
+        }
+        PsiFile psiFile = navigationElement.getContainingFile();
+        if (psiFile == null) {
+            return null;
+        }
+        CodeSmell sameElement = null;
+        for (CodeSmell codeSmell : CodeSmellCache.getInstance(psiFile.getProject()).getCodeSmells(psiFile)) {
+            if (this.fingerprint.equals(codeSmell.getFingerprint())) {
+                return codeSmell;
+            }
+            if (this.fingerprint.getKind().equals(codeSmell.getName())
+                    && navigationElement.equals(codeSmell.getNavigationElement())) {
+                sameElement = codeSmell;
+            }
+        }
+        return sameElement;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CodeSmellPointer && this.fingerprint.equals(((CodeSmellPointer) obj).fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.fingerprint.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.fingerprint.toString();
+    }
+
+}
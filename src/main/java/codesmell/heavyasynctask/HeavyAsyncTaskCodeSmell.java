@@ -4,6 +4,9 @@ import codesmell.AbstractCodeSmell;
 import com.intellij.psi.*;
 import utils.Constants;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public class HeavyAsyncTaskCodeSmell extends AbstractCodeSmell {
@@ -17,7 +20,7 @@ public class HeavyAsyncTaskCodeSmell extends AbstractCodeSmell {
 
     public HeavyAsyncTaskCodeSmell(PsiClass asyncTask, PsiMethod background, PsiMethod preExecute, PsiMethod progressUpdate,
                                    PsiMethod postExecute, Set<PsiStatement> allStatementsToRemove) {
-        super();
+        super(Constants.HEAVY_ASYNC_TASK, getFingerprintAnchor(asyncTask));
         this.asyncTask = asyncTask;
         this.background = background;
         this.preExecute = preExecute;
@@ -26,6 +29,16 @@ public class HeavyAsyncTaskCodeSmell extends AbstractCodeSmell {
         this.allStatementsToRemove = allStatementsToRemove;
     }
 
+    private static PsiElement getFingerprintAnchor(PsiClass asyncTask) {
+        // The enclosing members already name the class, so only the header is hashed. That keeps the fingerprint
+        // stable while the body of the AsyncTask is being edited
+        if (asyncTask instanceof PsiAnonymousClass) {
+            return ((PsiAnonymousClass) asyncTask).getBaseClassReference();
+        }
+        PsiIdentifier nameIdentifier = asyncTask.getNameIdentifier();
+        return nameIdentifier != null ? nameIdentifier : asyncTask;
+    }
+
     @Override
     public String getInformativeMessage(PsiFile psiFile) {
         int lineNum = getLineNum(psiFile, this.asyncTask);
@@ -46,33 +59,82 @@ public class HeavyAsyncTaskCodeSmell extends AbstractCodeSmell {
         return sb.toString();
     }
 
+    @Override
+    public String getName() {
+        return Constants.HEAVY_ASYNC_TASK;
+    }
+
     @Override
     public String getShortDescription() {
         return "Possible Heavy AsyncTask code smell";
     }
 
+    @Override
+    public PsiElement getNavigationElement() {
+        return this.asyncTask;
+    }
+
+    @Override
+    public boolean isValid() {
+        if (!this.asyncTask.isValid()) {
+            return false;
+        }
+        for (PsiStatement statement : this.allStatementsToRemove) {
+            if (!statement.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Collection<PsiElement> getRefactoringAnchors() {
+        // Exactly the methods updateRefactorings() rewrites, so that no anchor offers a fix that does nothing
+        List<PsiElement> anchors = new ArrayList<>(4);
+        if (getBackgroundStatements() == null) {
+            return anchors;
+        }
+        anchors.add(this.background);
+        for (PsiMethod uiMethod : new PsiMethod[]{this.preExecute, this.progressUpdate, this.postExecute}) {
+            if (isRewritable(uiMethod)) {
+                anchors.add(uiMethod);
+            }
+        }
+        return anchors;
+    }
+
+    /**
+     * @return the statements of the background method, or null if it cannot take the heavy statements, in which case
+     * nothing is rewritten
+     */
+    private PsiStatement[] getBackgroundStatements() {
+        if (!isRewritable(this.background)) {
+            return null;
+        }
+        PsiStatement[] statements = this.background.getBody().getStatements();
+        return statements.length == 0 ? null : statements;
+    }
+
+    private static boolean isRewritable(PsiMethod method) {
+        return method != null && method.getReturnType() != null && method.getBody() != null;
+    }
+
     @Override
     protected void updateRefactorings() {
+        PsiStatement[] statements = getBackgroundStatements();
+        if (statements == null) {
+            return;
+        }
         StringBuilder background = new StringBuilder();
 
         // Append background method signature
-        PsiType returnType = this.background.getReturnType();
-        if (returnType == null) {
-            return;
-        }
-        appendSignature(this.background, background, returnType);
+        appendSignature(this.background, background, this.background.getReturnType());
         background.append(" {");
 
         // Check onPreExecute() method
         checkUIMethod(background, this.preExecute);
 
         // Append background content
-        PsiCodeBlock body = this.background.getBody();
-        if (body == null) {
-            return;
-        }
-
-        PsiStatement[] statements = body.getStatements();
         int lastStatementIndex = statements.length - 1;
         for (int i = 0; i < lastStatementIndex; i++) {
             PsiStatement statement = statements[i];
@@ -80,24 +142,22 @@ public class HeavyAsyncTaskCodeSmell extends AbstractCodeSmell {
         }
 
         PsiStatement lastStat = statements[lastStatementIndex];
-        if (lastStat instanceof PsiTryStatement) {
+        PsiCodeBlock tryBody = lastStat instanceof PsiTryStatement ? ((PsiTryStatement) lastStat).getTryBlock() : null;
+        if (tryBody != null && tryBody.getStatements().length > 0) {
             PsiTryStatement tryStat = (PsiTryStatement) lastStat;
-            PsiCodeBlock tryBody = tryStat.getTryBlock();
-            if (tryBody != null) {
-                background.append("try {");
-                PsiStatement[] tryStatements = tryBody.getStatements();
-                int lastTryStatIndex = tryStatements.length - 1;
-                for (int i = 0; i < lastTryStatIndex; i++) {
-                    PsiStatement stat = tryStatements[i];
-                    background.append(stat.getText());
-                }
-                // Check onProgressUpdate() method
-                checkUIMethod(background, this.progressUpdate);
-                // Check onPostExecute() method
-                checkUIMethod(background, this.postExecute);
-                background.append(tryStatements[lastTryStatIndex].getText());
-                background.append("}");
+            background.append("try {");
+            PsiStatement[] tryStatements = tryBody.getStatements();
+            int lastTryStatIndex = tryStatements.length - 1;
+            for (int i = 0; i < lastTryStatIndex; i++) {
+                PsiStatement stat = tryStatements[i];
+                background.append(stat.getText());
             }
+            // Check onProgressUpdate() method
+            checkUIMethod(background, this.progressUpdate);
+            // Check onPostExecute() method
+            checkUIMethod(background, this.postExecute);
+            background.append(tryStatements[lastTryStatIndex].getText());
+            background.append("}");
             for (PsiCatchSection catchSection : tryStat.getCatchSections()) {
                 background.append(catchSection.getText());
             }
@@ -115,25 +175,17 @@ public class HeavyAsyncTaskCodeSmell extends AbstractCodeSmell {
     }
 
     private void checkUIMethod(StringBuilder background, PsiMethod uiMethod) {
-        if (uiMethod == null) {
+        if (!isRewritable(uiMethod)) {
             return;
         }
         StringBuilder sb = new StringBuilder();
         StringBuilder result = new StringBuilder();
 
         // Append uiMethod signature
-        PsiType returnType = uiMethod.getReturnType();
-        if (returnType == null) {
-            return;
-        }
-        appendSignature(uiMethod, sb, returnType);
+        appendSignature(uiMethod, sb, uiMethod.getReturnType());
         sb.append(" {");
 
-        PsiCodeBlock body = uiMethod.getBody();
-        if (body == null) {
-            return;
-        }
-        for (PsiStatement statement : body.getStatements()) {
+        for (PsiStatement statement : uiMethod.getBody().getStatements()) {
             String text = statement.getText();
             if (this.allStatementsToRemove.contains(statement)) {
                 // Add statement to background, replacing void "return;" with Object "return null;"
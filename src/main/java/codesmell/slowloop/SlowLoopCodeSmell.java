@@ -1,26 +1,51 @@
 package codesmell.slowloop;
 
 import codesmell.AbstractCodeSmell;
+import codesmell.CodeSmellFingerprint;
 import com.intellij.psi.*;
 import com.siyeh.HardcodedMethodConstants;
+import detection.FileAnalysisContext;
 import utils.Constants;
-import visitors.VariableNameVisitor;
 
 import java.util.*;
 
 public class SlowLoopCodeSmell extends AbstractCodeSmell {
 
+    private static final Set<String> JAVA_RESERVED_WORDS = new HashSet<>(Arrays.asList("abstract", "assert", "boolean",
+            "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "extends", "false",
+            "final", "finally", "float", "for", "goto", "if", "implements",
+            "import", "instanceof", "int", "interface", "long", "native",
+            "new", "null", "package", "private", "protected", "public",
+            "return", "short", "static", "strictfp", "super", "switch",
+            "synchronized", "this", "throw", "throws", "transient", "true",
+            "try", "void", "volatile", "while"));
+
     private final PsiForStatement forStatement;
     private final PsiVariable referenceVariable;
     private final PsiExpression accessExpression;
     private final PsiLocalVariable forEachReplacement;
+    private final FileAnalysisContext context;
 
-    public SlowLoopCodeSmell(PsiForStatement forStatement, PsiVariable referenceVariable, PsiExpression accessExpression, PsiLocalVariable forEachReplacement) {
-        super();
+    public SlowLoopCodeSmell(PsiForStatement forStatement, PsiVariable referenceVariable, PsiExpression accessExpression,
+                             PsiLocalVariable forEachReplacement, FileAnalysisContext context) {
+        super(createFingerprint(forStatement, referenceVariable));
         this.forStatement = forStatement;
         this.referenceVariable = referenceVariable;
         this.accessExpression = accessExpression;
         this.forEachReplacement = forEachReplacement;
+        this.context = context;
+    }
+
+    private static CodeSmellFingerprint createFingerprint(PsiForStatement forStatement, PsiVariable referenceVariable) {
+        // Only the loop header and the iterated variable identify the loop, so edits to its body keep its identity
+        return CodeSmellFingerprint.create(Constants.SLOW_LOOP, forStatement, forStatement.getInitialization(),
+                forStatement.getCondition(), forStatement.getUpdate(), referenceVariable.getNameIdentifier());
+    }
+
+    @Override
+    public String getName() {
+        return Constants.SLOW_LOOP;
     }
 
     @Override
@@ -53,30 +78,28 @@ public class SlowLoopCodeSmell extends AbstractCodeSmell {
     }
 
     @Override
-    protected void updateRefactorings() {
-        this.refactoringMappings.put(this.forStatement, getRefactoredCode());
+    public PsiElement getNavigationElement() {
+        return this.forStatement;
     }
 
     @Override
-    public String toString() {
-        return this.forStatement.getText();
+    public boolean isValid() {
+        return this.forStatement.isValid() && this.accessExpression.isValid();
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (!(obj instanceof SlowLoopCodeSmell)) {
-            return false;
-        }
-        SlowLoopCodeSmell that = (SlowLoopCodeSmell) obj;
-        String thisText = this.forStatement.getText().replaceAll("\\s+", "");
-        String thatText = that.forStatement.getText().replaceAll("\\s+", "");
-        return thisText.hashCode() == thatText.hashCode() && thisText.equals(thatText);
+    public Collection<PsiElement> getRefactoringAnchors() {
+        return Collections.singletonList(this.forStatement);
+    }
+
+    @Override
+    protected void updateRefactorings() {
+        this.refactoringMappings.put(this.forStatement, getRefactoredCode());
     }
 
     @Override
-    public int hashCode() {
-        String thisText = this.forStatement.getText().replaceAll("\\s+", "");
-        return thisText.hashCode();
+    public String toString() {
+        return this.forStatement.getText();
     }
 
     private String getRefactoredCode() {
@@ -141,20 +164,8 @@ public class SlowLoopCodeSmell extends AbstractCodeSmell {
         if (!(containingElement instanceof PsiMethod)) {
             return defaultName;
         }
-        PsiMethod containingMethod = (PsiMethod) containingElement;
-        VariableNameVisitor variableNameVisitor = new VariableNameVisitor();
-        containingMethod.accept(variableNameVisitor);
-        Set<String> unavailableVariableNames = variableNameVisitor.getVariableNames();
-        List<String> javaReservedWords = Arrays.asList("abstract", "assert", "boolean",
-                "break", "byte", "case", "catch", "char", "class", "const",
-                "continue", "default", "do", "double", "else", "extends", "false",
-                "final", "finally", "float", "for", "goto", "if", "implements",
-                "import", "instanceof", "int", "interface", "long", "native",
-                "new", "null", "package", "private", "protected", "public",
-                "return", "short", "static", "strictfp", "super", "switch",
-                "synchronized", "this", "throw", "throws", "transient", "true",
-                "try", "void", "volatile", "while");
-        unavailableVariableNames.addAll(javaReservedWords);
+        // Shared with every other Slow Loop in the method, so it is only collected once
+        Set<String> unavailableVariableNames = this.context.getVariableNames((PsiMethod) containingElement);
         StringBuilder variableName = new StringBuilder();
         for (char c : variableType.toCharArray()) {
             if (!Character.isAlphabetic(c)) {
@@ -162,19 +173,23 @@ public class SlowLoopCodeSmell extends AbstractCodeSmell {
             }
             variableName.append(Character.toLowerCase(c));
             String constructedName = variableName.toString();
-            if (!unavailableVariableNames.contains(constructedName)) {
+            if (isAvailableVariableName(unavailableVariableNames, constructedName)) {
                 return constructedName;
             }
         }
         for (int i = 0; i < 100;i++) {
             String nthDefaultVariable = defaultName + i;
-            if (!unavailableVariableNames.contains(nthDefaultVariable)) {
+            if (isAvailableVariableName(unavailableVariableNames, nthDefaultVariable)) {
                 return nthDefaultVariable;
             }
         }
         return defaultName;
     }
 
+    private static boolean isAvailableVariableName(Set<String> unavailableVariableNames, String variableName) {
+        return !unavailableVariableNames.contains(variableName) && !JAVA_RESERVED_WORDS.contains(variableName);
+    }
+
     private String getQualifiedReferenceName(PsiExpression accessExoression, PsiVariable referenceVariable) {
         String defaultName = referenceVariable.getName();
         // Split between array and iterable accesses
@@ -191,7 +206,7 @@ public class SlowLoopCodeSmell extends AbstractCodeSmell {
             // of the iterator and use the initializer to get the qualified name
             if (HardcodedMethodConstants.NEXT.equals(methodName) && qualifier instanceof PsiReferenceExpression) {
                 PsiReferenceExpression qualifierReference = (PsiReferenceExpression) qualifier;
-                PsiElement resolvedQualifier = qualifierReference.resolve();
+                PsiElement resolvedQualifier = this.context.resolve(qualifierReference);
                 if (!(resolvedQualifier instanceof PsiLocalVariable)) {
                     return defaultName;
                 }
@@ -0,0 +1,86 @@
+package detection;
+
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWithId;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.Processor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds the subclasses of {@code android.os.AsyncTask}, direct or indirect, named or anonymous, through the
+ * stub-based inheritor search. The search only covers the files being analyzed, so small scans and single files do
+ * not pay for a search of the whole project.
+ */
+public class AsyncTaskInheritors {
+
+    public static final String ASYNC_TASK_CLASS = "android.os.AsyncTask";
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @return the given files declaring AsyncTask subclasses, or null while the indexes are being built
+     */
+    @Nullable
+    public static Set<VirtualFile> getFilesWithAsyncTasks(Project project, Collection<VirtualFile> files) {
+        if (DumbService.isDumb(project)) {
+            return null;
+        }
+        Set<VirtualFile> filesWithAsyncTasks = new HashSet<>();
+        // Only the containing files are kept, so no PSI stays reachable from the result
+        search(project, GlobalSearchScope.filesScope(project, files), inheritor -> {
+            PsiFile psiFile = inheritor.getContainingFile();
+            VirtualFile virtualFile = psiFile == null ? null : psiFile.getVirtualFile();
+            if (virtualFile != null) {
+                filesWithAsyncTasks.add(virtualFile);
+            }
+            return true;
+        });
+        return filesWithAsyncTasks;
+    }
+
+    /**
+     * Must be called inside a read action. The result is cached on the file until the class structure changes.
+     *
+     * @return the AsyncTask subclasses declared in the file, or null if the search cannot tell, e.g. while indexing
+     * or for files outside the indexes, in which case any class of the file may be one
+     */
+    @Nullable
+    public static Set<PsiClass> getAsyncTasks(PsiFile psiFile) {
+        Project project = psiFile.getProject();
+        VirtualFile virtualFile = psiFile.getViewProvider().getVirtualFile();
+        if (!(virtualFile instanceof VirtualFileWithId) || DumbService.isDumb(project)) {
+            return null;
+        }
+        return CachedValuesManager.getCachedValue(psiFile, () -> {
+            Set<PsiClass> asyncTasks = new HashSet<>();
+            search(project, GlobalSearchScope.fileScope(project, virtualFile), inheritor -> {
+                asyncTasks.add(inheritor);
+                return true;
+            });
+            return CachedValueProvider.Result.create(Collections.unmodifiableSet(asyncTasks),
+                    PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT);
+        });
+    }
+
+    private static void search(Project project, GlobalSearchScope scope, Processor<PsiClass> processor) {
+        PsiClass asyncTask = JavaPsiFacade.getInstance(project).findClass(ASYNC_TASK_CLASS, GlobalSearchScope.allScope(project));
+        if (asyncTask != null) {
+            ClassInheritorsSearch.search(asyncTask, scope, true).forEach(processor);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package detection;
+
+import codesmell.AbstractCodeSmell;
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import profiling.ScanProfiler;
+
+import java.util.Collection;
+
+/**
+ * A detector run by the {@link visitors.SourceCodeVisitor}, registered through the {@code detector} extension point
+ * so that other plugins can ship their own. The walk of a file only hands a detector the elements of the types it
+ * declares, runs the cheap {@link #isCandidate} checks of all interested detectors before any of the more expensive
+ * {@link Session#visitCandidate} calls, and runs both in increasing order of {@link #getCost()}.
+ * <p>
+ * Detectors are application-wide and shared by all workers, so they must hold no state of their own. Whatever they
+ * collect while a file is being walked belongs in the {@link Session} created for that file.
+ */
+public abstract class CodeSmellDetector {
+
+    public static final ExtensionPointName<CodeSmellDetector> EP_NAME = ExtensionPointName.create("code-smell-detector.detector");
+
+    /**
+     * @return the name of the detected code smell, also used to attribute time in scan profiles
+     */
+    @NotNull
+    public abstract String getName();
+
+    /**
+     * @return the PSI element types, classes or interfaces, that the detector needs to see
+     */
+    @NotNull
+    public abstract Collection<Class<? extends PsiElement>> getElementTypes();
+
+    /**
+     * @return the relative cost of inspecting a candidate, which orders the detectors interested in the same element
+     */
+    public abstract int getCost();
+
+    /**
+     * Cheap check run before the detector sees an element of one of its types. It should neither resolve references
+     * nor look at other files, beyond what the indexes already give away.
+     */
+    public boolean isCandidate(@NotNull PsiElement element, @NotNull FileAnalysisContext context) {
+        return true;
+    }
+
+    /**
+     * Lets scans skip files without parsing them. Must be called inside a read action.
+     *
+     * @param files the files being scanned, which is all the lookup should cover
+     * @return the given files that may contain the code smell, or null if any file may
+     */
+    @Nullable
+    public Collection<VirtualFile> getCandidateFiles(@NotNull Project project, @NotNull Collection<VirtualFile> files) {
+        return null;
+    }
+
+    /**
+     * Called the first time a file has a candidate for this detector, so files without any cost nothing more.
+     */
+    @NotNull
+    public abstract Session createSession(@NotNull FileAnalysisContext context, @NotNull ScanProfiler profiler);
+
+    /**
+     * State of the detector for the walk of a single file, only ever used by the thread walking it.
+     */
+    public abstract static class Session {
+
+        /**
+         * Called for each element of the declared types that passed {@link #isCandidate}.
+         */
+        public abstract void visitCandidate(@NotNull PsiElement element);
+
+        /**
+         * @return whether the session needs to see every element the walk enters, e.g. inside a candidate's body
+         */
+        public boolean isWatching() {
+            return false;
+        }
+
+        /**
+         * Called for every element the walk enters while {@link #isWatching()}, before the element is dispatched
+         * to the detectors as a candidate.
+         */
+        public void visitElement(@NotNull PsiElement element) {
+        }
+
+        /**
+         * Called for every element once the walk has left it.
+         *
+         * @return the code smell completed by leaving the element, or null
+         */
+        @Nullable
+        public AbstractCodeSmell elementFinished(@NotNull PsiElement element) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+package detection;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The registered {@link CodeSmellDetector}s, ordered by cost, and the ones interested in each concrete PSI class.
+ * The walk looks up the detectors of every element it enters, so the answer for each class is only worked out once.
+ */
+public class CodeSmellDetectors {
+
+    private static final CodeSmellDetector[] NONE = new CodeSmellDetector[0];
+    private static final ConcurrentMap<Class<?>, CodeSmellDetector[]> DETECTORS_BY_CLASS = new ConcurrentHashMap<>();
+    private static volatile CodeSmellDetector[] detectors;
+
+    /**
+     * @return every registered detector, cheapest first
+     */
+    public static CodeSmellDetector[] getAll() {
+        CodeSmellDetector[] all = detectors;
+        if (all == null) {
+            all = CodeSmellDetector.EP_NAME.getExtensions().clone();
+            Arrays.sort(all, Comparator.comparingInt(CodeSmellDetector::getCost));
+            detectors = all;
+        }
+        return all;
+    }
+
+    /**
+     * @return the detectors declaring a type the element is an instance of, cheapest first
+     */
+    public static CodeSmellDetector[] getInterested(PsiElement element) {
+        return DETECTORS_BY_CLASS.computeIfAbsent(element.getClass(), CodeSmellDetectors::findInterested);
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @return the given files in which any detector may find a code smell, or null if that can be any of them
+     */
+    @Nullable
+    public static Set<VirtualFile> getCandidateFiles(Project project, Collection<VirtualFile> files) {
+        Set<VirtualFile> candidateFiles = new HashSet<>();
+        for (CodeSmellDetector detector : getAll()) {
+            Collection<VirtualFile> detectorCandidateFiles = detector.getCandidateFiles(project, files);
+            if (detectorCandidateFiles == null) {
+                return null;
+            }
+            candidateFiles.addAll(detectorCandidateFiles);
+        }
+        return candidateFiles;
+    }
+
+    private static CodeSmellDetector[] findInterested(Class<?> elementClass) {
+        List<CodeSmellDetector> interested = new ArrayList<>();
+        for (CodeSmellDetector detector : getAll()) {
+            for (Class<? extends PsiElement> elementType : detector.getElementTypes()) {
+                if (elementType.isAssignableFrom(elementClass)) {
+                    interested.add(detector);
+                    break;
+                }
+            }
+        }
+        return interested.isEmpty() ? NONE : interested.toArray(NONE);
+    }
+
+}
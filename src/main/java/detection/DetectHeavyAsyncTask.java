@@ -3,23 +3,73 @@ package detection;
 import codesmell.heavyasynctask.HeavyAsyncTaskCodeSmell;
 import com.intellij.psi.*;
 import com.intellij.psi.util.InheritanceUtil;
-import com.intellij.psi.util.MethodSignature;
 import com.intellij.psi.util.PsiUtil;
 import visitors.AsyncTaskUIMethodVisitor;
 
 import java.util.*;
 
+/**
+ * Checks AsyncTask subclasses; the UI method visitors of a class are only shared by that class's check, while the UI
+ * type verdicts come from the project's {@link UITypeClassifier}.
+ */
 public class DetectHeavyAsyncTask {
 
+    private static final Set<String> UI_METHOD_NAMES = new HashSet<>(Arrays.asList("onPreExecute", "onProgressUpdate", "onPostExecute"));
+
     public static HeavyAsyncTaskCodeSmell checkForHeavyAsyncTask(PsiClass classDec) {
+        FileAnalysisContext context = FileAnalysisContext.forElement(classDec);
+        HeavyAsyncTaskCodeSmell codeSmell = checkForHeavyAsyncTask(classDec, context);
+        context.analysisFinished();
+        return codeSmell;
+    }
+
+    public static HeavyAsyncTaskCodeSmell checkForHeavyAsyncTask(PsiClass classDec, FileAnalysisContext context) {
+        List<PsiMethod> uiMethods = getUIMethodsToInspect(classDec);
+        if (uiMethods == null) {
+            return null;
+        }
+        Map<PsiMethod, AsyncTaskUIMethodVisitor> uiMethodVisitors = new HashMap<>();
+        for (PsiMethod uiMethod : uiMethods) {
+            AsyncTaskUIMethodVisitor visitor = createUIMethodVisitor(uiMethod, context);
+            visitor.walk(uiMethod);
+            uiMethodVisitors.put(uiMethod, visitor);
+        }
+        return getConstructedCodeSmell(classDec, uiMethodVisitors);
+    }
+
+    /**
+     * Runs the checks on the class declaration only.
+     *
+     * @param classDec the class to inspect for the Heavy AsyncTask code smell
+     * @return the UI methods whose bodies still need to be visited, or null if the class cannot be a Heavy AsyncTask
+     */
+    public static List<PsiMethod> getUIMethodsToInspect(PsiClass classDec) {
         // Check class declaration is of an AsyncTask
+        if (PsiUtil.isAbstractClass(classDec) || !InheritanceUtil.isInheritor(classDec, AsyncTaskInheritors.ASYNC_TASK_CLASS)) {
+            return null;
+        }
 
         // Need to check onPreExecute(), onProgressUpdate() and onPostExecute() methods
-        String className = "android.os.AsyncTask";
-        if (PsiUtil.isAbstractClass(classDec) || !InheritanceUtil.isInheritor(classDec, className)) {
-            return null;
+        List<PsiMethod> uiMethods = new ArrayList<>();
+        for (PsiMethod method : classDec.getMethods()) {
+            if (UI_METHOD_NAMES.contains(method.getName())) {
+                uiMethods.add(method);
+            }
         }
+        return uiMethods;
+    }
+
+    public static AsyncTaskUIMethodVisitor createUIMethodVisitor(PsiMethod uiMethod, FileAnalysisContext context) {
+        return new AsyncTaskUIMethodVisitor(context, UITypeClassifier.getInstance(uiMethod.getProject()),
+                uiMethod.getParameterList().getParameters());
+    }
 
+    /**
+     * @param classDec         the AsyncTask class, which passed {@link #getUIMethodsToInspect(PsiClass)}
+     * @param uiMethodVisitors the visitors that have seen the bodies of each of the returned UI methods
+     * @return the detected Heavy AsyncTask code smell, or null if no UI method does heavy work
+     */
+    public static HeavyAsyncTaskCodeSmell getConstructedCodeSmell(PsiClass classDec, Map<PsiMethod, AsyncTaskUIMethodVisitor> uiMethodVisitors) {
         PsiMethod background = null;
         PsiMethod preExecute = null;
         PsiMethod progressUpdate = null;
@@ -34,19 +84,19 @@ public class DetectHeavyAsyncTask {
                     background = method;
                     break;
                 case "onPreExecute":
-                    updateUiMethods(heavyUiMethods, allStatementsToRemove, method);
+                    updateUiMethods(heavyUiMethods, allStatementsToRemove, method, uiMethodVisitors.get(method));
                     if (heavyUiMethods.contains(method)) {
                         preExecute = method;
                     }
                     break;
                 case "onProgressUpdate":
-                    updateUiMethods(heavyUiMethods, allStatementsToRemove, method);
+                    updateUiMethods(heavyUiMethods, allStatementsToRemove, method, uiMethodVisitors.get(method));
                     if (heavyUiMethods.contains(method)) {
                         progressUpdate = method;
                     }
                     break;
                 case "onPostExecute":
-                    updateUiMethods(heavyUiMethods, allStatementsToRemove, method);
+                    updateUiMethods(heavyUiMethods, allStatementsToRemove, method, uiMethodVisitors.get(method));
                     if (heavyUiMethods.contains(method)) {
                         postExecute = method;
                     }
@@ -63,19 +113,21 @@ public class DetectHeavyAsyncTask {
         return new HeavyAsyncTaskCodeSmell(classDec, background, preExecute, progressUpdate, postExecute, allStatementsToRemove);
     }
 
-    private static void updateUiMethods(Set<PsiMethod> uiMethods, Set<PsiStatement> allStatementsToRemove, PsiMethod method) {
-        Set<PsiStatement> statementsToRemove = checkHeavyUIMethod(method);
+    private static void updateUiMethods(Set<PsiMethod> uiMethods, Set<PsiStatement> allStatementsToRemove, PsiMethod method,
+                                        AsyncTaskUIMethodVisitor visitor) {
+        if (visitor == null) {
+            return;
+        }
+        Set<PsiStatement> statementsToRemove = checkHeavyUIMethod(method, visitor);
         if (!statementsToRemove.isEmpty()) {
             uiMethods.add(method);
             allStatementsToRemove.addAll(statementsToRemove);
         }
     }
 
-    private static Set<PsiStatement> checkHeavyUIMethod(PsiMethod uiMethod) {
+    private static Set<PsiStatement> checkHeavyUIMethod(PsiMethod uiMethod, AsyncTaskUIMethodVisitor visitor) {
         // Check for statements where they are not involved in any UI method call. If they can be moved,
         // flag as HAS code smell.
-        AsyncTaskUIMethodVisitor visitor = new AsyncTaskUIMethodVisitor(uiMethod.getParameterList().getParameters());
-        uiMethod.accept(visitor);
         Set<PsiStatement> statementsToIgnore = visitor.getStatementsToIgnore();
         Set<PsiStatement> statementsToRemove = new LinkedHashSet<>();
         PsiCodeBlock block = uiMethod.getBody();
@@ -10,7 +10,12 @@ import com.siyeh.ig.psiutils.TypeUtils;
 import com.siyeh.ig.psiutils.VariableAccessUtils;
 import visitors.IndexedLoopVisitor;
 import visitors.IteratorVisitor;
+import visitors.LoopBodyVisitor;
 
+/**
+ * Checks indexed and iterator for loops; each loop gets its own {@link LoopBodyVisitor}, so loops of different files
+ * can be checked concurrently under their own read actions.
+ */
 public class DetectSlowLoop {
 
 
@@ -28,6 +33,30 @@ public class DetectSlowLoop {
      * @return the detected slow loop code smell, or null if detection fails
      */
     public static SlowLoopCodeSmell checkForSlowLoop(PsiForStatement forStatement) {
+        FileAnalysisContext context = FileAnalysisContext.forElement(forStatement);
+        SlowLoopCodeSmell codeSmell = checkForSlowLoop(forStatement, context);
+        context.analysisFinished();
+        return codeSmell;
+    }
+
+    public static SlowLoopCodeSmell checkForSlowLoop(PsiForStatement forStatement, FileAnalysisContext context) {
+        LoopBodyVisitor loopBodyVisitor = createLoopBodyVisitor(forStatement, context);
+        if (loopBodyVisitor == null) {
+            return null;
+        }
+        loopBodyVisitor.walk(forStatement.getBody());
+        return loopBodyVisitor.getConstructedCodeSmell(forStatement);
+    }
+
+    /**
+     * Runs the checks on the loop header only. The returned visitor still needs to see the loop body, either by
+     * walking it itself or through a traversal shared with other detectors.
+     *
+     * @param forStatement the standard for loop to inspect for the Slow Loop code smell
+     * @param context      the analysis context of the file containing the loop
+     * @return the visitor to inspect the loop body with, or null if the loop header already rules out the code smell
+     */
+    public static LoopBodyVisitor createLoopBodyVisitor(PsiForStatement forStatement, FileAnalysisContext context) {
         PsiStatement forInitializer =  forStatement.getInitialization();
         if (!(forInitializer instanceof PsiDeclarationStatement)) {
             return null;
@@ -47,16 +76,17 @@ public class DetectSlowLoop {
 
         // Split the checking for an iterator loop and an indexed loop
         if (TypeUtils.variableHasTypeOrSubtype(declaredVariable, CommonClassNames.JAVA_UTIL_ITERATOR)) {
-            return checkForIteratorLoop(declaredVariable, forStatement);
+            return createIteratorVisitor(declaredVariable, forStatement, context);
         }
         PsiType declaredVariableType = declaredVariable.getType();
         if (declaredVariableType instanceof PsiPrimitiveType && declaredVariableType.equals(PsiType.INT)){
-            return checkForIndexedLoop(declaredVariable, forStatement);
+            return createIndexedLoopVisitor(declaredVariable, forStatement, context);
         }
         return null;
     }
 
-    private static SlowLoopCodeSmell checkForIndexedLoop(PsiLocalVariable indexVariable, PsiForStatement forStatement) {
+    private static IndexedLoopVisitor createIndexedLoopVisitor(PsiLocalVariable indexVariable, PsiForStatement forStatement,
+                                                               FileAnalysisContext context) {
         // Check the declared variable starts at 0
         PsiExpression indexExpression = indexVariable.getInitializer();
         Object constant = ExpressionUtils.computeConstantExpression(indexExpression);
@@ -82,9 +112,9 @@ public class DetectSlowLoop {
         }
         PsiReferenceExpression referenceExpression = null;
         if (tokenType.equals(JavaTokenType.LT)) {
-            referenceExpression = getVariableReference(lhs, indexVariable, rhs);
+            referenceExpression = getVariableReference(lhs, indexVariable, rhs, context);
         } else if (tokenType.equals(JavaTokenType.GT)) {
-            referenceExpression = getVariableReference(rhs, indexVariable, lhs);
+            referenceExpression = getVariableReference(rhs, indexVariable, lhs, context);
         }
         if (referenceExpression == null) {
             return null;
@@ -93,7 +123,7 @@ public class DetectSlowLoop {
         if (!(qualifierExpression instanceof PsiReferenceExpression)) {
             return null;
         }
-        PsiElement referenceElement = ((PsiReferenceExpression) qualifierExpression).resolve();
+        PsiElement referenceElement = context.resolve((PsiReferenceExpression) qualifierExpression);
         if (!(referenceElement instanceof PsiVariable)) {
             return null;
         }
@@ -111,19 +141,18 @@ public class DetectSlowLoop {
         if (body == null) {
             return null;
         }
-        IndexedLoopVisitor indexedLoopVisitor = new IndexedLoopVisitor(indexVariable, referenceVariable);
-        body.accept(indexedLoopVisitor);
-        return indexedLoopVisitor.getConstructedCodeSmell(forStatement);
+        return new IndexedLoopVisitor(context, indexVariable, referenceVariable);
     }
 
-    private static SlowLoopCodeSmell checkForIteratorLoop(PsiLocalVariable iteratorVariable, PsiForStatement forStatement) {
+    private static IteratorVisitor createIteratorVisitor(PsiLocalVariable iteratorVariable, PsiForStatement forStatement,
+                                                         FileAnalysisContext context) {
         PsiExpression initializer = iteratorVariable.getInitializer();
         // Check that initializer call is the iterator() method.
         if (!(initializer instanceof PsiMethodCallExpression)) {
             return null;
         }
         PsiMethodCallExpression initializerMethodCall = (PsiMethodCallExpression) initializer;
-        PsiMethod initializerMethod = initializerMethodCall.resolveMethod();
+        PsiMethod initializerMethod = context.resolveMethod(initializerMethodCall);
         if (initializerMethod == null || !HardcodedMethodConstants.ITERATOR.equals(initializerMethod.getName())
                 || !initializerMethodCall.getArgumentList().isEmpty()) {
             return null;
@@ -133,7 +162,7 @@ public class DetectSlowLoop {
             return null;
         }
         PsiReferenceExpression qualifierReference = (PsiReferenceExpression) initializerQualifier;
-        PsiElement resolvedReference = qualifierReference.resolve();
+        PsiElement resolvedReference = context.resolve(qualifierReference);
         if (!(resolvedReference instanceof PsiVariable)) {
             return null;
         }
@@ -145,13 +174,13 @@ public class DetectSlowLoop {
             return null;
         }
         PsiMethodCallExpression conditionMethodCall = (PsiMethodCallExpression) condition;
-        PsiMethod conditionMethod = conditionMethodCall.resolveMethod();
+        PsiMethod conditionMethod = context.resolveMethod(conditionMethodCall);
         if (conditionMethod == null || !HardcodedMethodConstants.HAS_NEXT.equals(conditionMethod.getName())
                 || !conditionMethodCall.getArgumentList().isEmpty()) {
             return null;
         }
         PsiExpression conditionQualifier = conditionMethodCall.getMethodExpression().getQualifierExpression();
-        if (!VariableAccessUtils.evaluatesToVariable(conditionQualifier, iteratorVariable)) {
+        if (!context.isReferenceTo(conditionQualifier, iteratorVariable)) {
             return null;
         }
 
@@ -165,24 +194,23 @@ public class DetectSlowLoop {
         if (body == null) {
             return null;
         }
-        IteratorVisitor iteratorVisitor = new IteratorVisitor(referenceVariable, iteratorVariable);
-        body.accept(iteratorVisitor);
-        return iteratorVisitor.getConstructedCodeSmell(forStatement);
+        return new IteratorVisitor(context, referenceVariable, iteratorVariable);
     }
 
-    private static PsiReferenceExpression getVariableReference(PsiExpression indexExpression, PsiLocalVariable indexVariable, PsiExpression reference) {
+    private static PsiReferenceExpression getVariableReference(PsiExpression indexExpression, PsiLocalVariable indexVariable,
+                                                               PsiExpression reference, FileAnalysisContext context) {
         // Check if the expression on the left hand side of the binary expression is the index variable
-        if (ExpressionUtils.isReferenceTo(indexExpression, indexVariable)) {
+        if (context.isReferenceTo(indexExpression, indexVariable)) {
             if (reference instanceof PsiReferenceExpression) {
                 // The reference is an array, so ensure than the reference is accessing the length field
                 PsiReferenceExpression referenceExp = (PsiReferenceExpression) reference;
                 if ("length".equals(referenceExp.getReferenceName())) {
                     return referenceExp;
                 }
-                PsiElement resolvedReference = referenceExp.resolve();
+                PsiElement resolvedReference = context.resolve(referenceExp);
                 if (resolvedReference instanceof PsiVariable) {
                     PsiVariable capacityVariable = (PsiVariable) resolvedReference;
-                    return getVariableReference(indexExpression, indexVariable, capacityVariable.getInitializer());
+                    return getVariableReference(indexExpression, indexVariable, capacityVariable.getInitializer(), context);
                 }
             } else if (reference instanceof PsiMethodCallExpression) {
                 // The reference is a list, so check if the reference is called the size() method
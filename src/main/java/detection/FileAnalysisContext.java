@@ -0,0 +1,159 @@
+package detection;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiUtil;
+import index.SlowLoopCandidateIndex;
+import profiling.ScanProfiler;
+import visitors.VariableNameVisitor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Work shared by the detectors and refactorings of a single file, so that files with many loops in the same method
+ * do not resolve the same references or collect the same variable names over and over.
+ * <p>
+ * Resolution results are only memoized while the file is being analyzed, by a single thread, and are dropped by
+ * {@link #analysisFinished()}. The variable names of each method are kept for the refactorings, which can be built
+ * later from any thread, and are recomputed once the file has changed.
+ */
+public class FileAnalysisContext {
+
+    // Stands in for references that do not resolve, as the maps cannot hold null
+    private static final Object UNRESOLVED = new Object();
+
+    private final PsiFile psiFile;
+    private final ScanProfiler profiler;
+
+    private volatile Map<PsiReference, Object> resolvedReferences = new HashMap<>();
+    private volatile Map<PsiMethodCallExpression, Object> resolvedMethods = new HashMap<>();
+
+    private final ConcurrentMap<PsiMethod, Set<String>> variableNames = new ConcurrentHashMap<>();
+    private volatile long variableNamesModificationStamp;
+
+    // Looked up once each, by the thread analyzing the file. Null if every loop or class has to be checked
+    private int[] slowLoopCandidateOffsets;
+    private boolean isSlowLoopCandidatesLoaded;
+    private Set<PsiClass> asyncTaskCandidates;
+    private boolean isAsyncTaskCandidatesLoaded;
+
+    public FileAnalysisContext(PsiFile psiFile) {
+        this(psiFile, ScanProfiler.DISABLED);
+    }
+
+    /**
+     * @param profiler records the time of the resolves that are not memoized yet as {@link ScanProfiler.Phase#RESOLVE}
+     */
+    public FileAnalysisContext(PsiFile psiFile, ScanProfiler profiler) {
+        this.psiFile = psiFile;
+        this.profiler = profiler;
+        this.variableNamesModificationStamp = psiFile.getModificationStamp();
+    }
+
+    public static FileAnalysisContext forElement(PsiElement element) {
+        return new FileAnalysisContext(element.getContainingFile());
+    }
+
+    public PsiElement resolve(PsiReference reference) {
+        Map<PsiReference, Object> resolvedReferences = this.resolvedReferences;
+        if (resolvedReferences == null) {
+            return timedResolve(reference);
+        }
+        Object resolved = resolvedReferences.get(reference);
+        if (resolved == null) {
+            resolved = timedResolve(reference);
+            resolvedReferences.put(reference, resolved == null ? UNRESOLVED : resolved);
+        }
+        return resolved == UNRESOLVED ? null : (PsiElement) resolved;
+    }
+
+    public PsiMethod resolveMethod(PsiMethodCallExpression methodCall) {
+        Map<PsiMethodCallExpression, Object> resolvedMethods = this.resolvedMethods;
+        if (resolvedMethods == null) {
+            return timedResolveMethod(methodCall);
+        }
+        Object resolved = resolvedMethods.get(methodCall);
+        if (resolved == null) {
+            resolved = timedResolveMethod(methodCall);
+            resolvedMethods.put(methodCall, resolved == null ? UNRESOLVED : resolved);
+        }
+        return resolved == UNRESOLVED ? null : (PsiMethod) resolved;
+    }
+
+    private PsiElement timedResolve(PsiReference reference) {
+        long start = this.profiler.start();
+        PsiElement resolved = reference.resolve();
+        this.profiler.phaseFinished(ScanProfiler.Phase.RESOLVE, start);
+        return resolved;
+    }
+
+    private PsiMethod timedResolveMethod(PsiMethodCallExpression methodCall) {
+        long start = this.profiler.start();
+        PsiMethod resolved = methodCall.resolveMethod();
+        this.profiler.phaseFinished(ScanProfiler.Phase.RESOLVE, start);
+        return resolved;
+    }
+
+    /**
+     * @return whether the expression, ignoring parentheses, is a reference to the given variable
+     */
+    public boolean isReferenceTo(PsiExpression expression, PsiVariable variable) {
+        PsiExpression stripped = PsiUtil.skipParenthesizedExprDown(expression);
+        return stripped instanceof PsiReferenceExpression && variable.equals(resolve((PsiReferenceExpression) stripped));
+    }
+
+    /**
+     * @return whether the loop may be a Slow Loop according to the {@link SlowLoopCandidateIndex}, which lets the
+     * detector skip loops without loading anything beyond their own PSI
+     */
+    public boolean isSlowLoopCandidate(PsiForStatement forStatement) {
+        if (!this.isSlowLoopCandidatesLoaded) {
+            this.slowLoopCandidateOffsets = SlowLoopCandidateIndex.getCandidateOffsets(this.psiFile);
+            this.isSlowLoopCandidatesLoaded = true;
+        }
+        return this.slowLoopCandidateOffsets == null
+                || Arrays.binarySearch(this.slowLoopCandidateOffsets, forStatement.getTextRange().getStartOffset()) >= 0;
+    }
+
+    /**
+     * @return whether the class may be an AsyncTask according to {@link AsyncTaskInheritors}, which lets the detector
+     * skip every other class without walking its hierarchy
+     */
+    public boolean isAsyncTaskCandidate(PsiClass aClass) {
+        if (!this.isAsyncTaskCandidatesLoaded) {
+            this.asyncTaskCandidates = AsyncTaskInheritors.getAsyncTasks(this.psiFile);
+            this.isAsyncTaskCandidatesLoaded = true;
+        }
+        return this.asyncTaskCandidates == null || this.asyncTaskCandidates.contains(aClass);
+    }
+
+    /**
+     * @return the names of all variables declared in the method, which must not be modified
+     */
+    public Set<String> getVariableNames(PsiMethod method) {
+        long modificationStamp = this.psiFile.getModificationStamp();
+        if (modificationStamp != this.variableNamesModificationStamp) {
+            this.variableNames.clear();
+            this.variableNamesModificationStamp = modificationStamp;
+        }
+        return this.variableNames.computeIfAbsent(method, m -> {
+            VariableNameVisitor variableNameVisitor = new VariableNameVisitor();
+            m.accept(variableNameVisitor);
+            return Collections.unmodifiableSet(variableNameVisitor.getVariableNames());
+        });
+    }
+
+    /**
+     * Releases the memoized resolution results once every detector has seen the file. Later lookups resolve directly.
+     */
+    public void analysisFinished() {
+        this.resolvedReferences = null;
+        this.resolvedMethods = null;
+    }
+
+}
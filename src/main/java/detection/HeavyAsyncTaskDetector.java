@@ -0,0 +1,118 @@
+package detection;
+
+import codesmell.AbstractCodeSmell;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import org.jetbrains.annotations.NotNull;
+import profiling.ScanProfiler;
+import utils.Constants;
+import visitors.AsyncTaskUIMethodVisitor;
+
+import java.util.*;
+
+/**
+ * Runs {@link DetectHeavyAsyncTask} from the shared walk: the class declaration is checked when the class is entered,
+ * and the elements of its UI methods are handed to their visitors as the walk passes through.
+ */
+public class HeavyAsyncTaskDetector extends CodeSmellDetector {
+
+    // Classifying the types used in UI methods costs more than checking a loop header
+    private static final int COST = 20;
+
+    @NotNull
+    @Override
+    public String getName() {
+        return Constants.HEAVY_ASYNC_TASK;
+    }
+
+    @NotNull
+    @Override
+    public Collection<Class<? extends PsiElement>> getElementTypes() {
+        return Collections.singletonList(PsiClass.class);
+    }
+
+    @Override
+    public int getCost() {
+        return COST;
+    }
+
+    @Override
+    public boolean isCandidate(@NotNull PsiElement element, @NotNull FileAnalysisContext context) {
+        return context.isAsyncTaskCandidate((PsiClass) element);
+    }
+
+    @Override
+    public Collection<VirtualFile> getCandidateFiles(@NotNull Project project, @NotNull Collection<VirtualFile> files) {
+        return AsyncTaskInheritors.getFilesWithAsyncTasks(project, files);
+    }
+
+    @NotNull
+    @Override
+    public Session createSession(@NotNull FileAnalysisContext context, @NotNull ScanProfiler profiler) {
+        return new HeavyAsyncTaskSession(context);
+    }
+
+    private static class HeavyAsyncTaskSession extends Session {
+
+        private final FileAnalysisContext context;
+
+        // Candidates, with a visitor for each UI method that still has to be walked
+        private final Map<PsiClass, Map<PsiMethod, AsyncTaskUIMethodVisitor>> asyncTaskCandidates = new HashMap<>();
+        private final Map<PsiMethod, AsyncTaskUIMethodVisitor> pendingUIMethods = new HashMap<>();
+        private final Map<PsiMethod, AsyncTaskUIMethodVisitor> activeUIMethodVisitors = new LinkedHashMap<>();
+
+        private HeavyAsyncTaskSession(FileAnalysisContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void visitCandidate(@NotNull PsiElement element) {
+            PsiClass aClass = (PsiClass) element;
+            List<PsiMethod> uiMethods = DetectHeavyAsyncTask.getUIMethodsToInspect(aClass);
+            if (uiMethods == null) {
+                return;
+            }
+            Map<PsiMethod, AsyncTaskUIMethodVisitor> uiMethodVisitors = new HashMap<>();
+            for (PsiMethod uiMethod : uiMethods) {
+                AsyncTaskUIMethodVisitor uiMethodVisitor = DetectHeavyAsyncTask.createUIMethodVisitor(uiMethod, this.context);
+                uiMethodVisitors.put(uiMethod, uiMethodVisitor);
+                this.pendingUIMethods.put(uiMethod, uiMethodVisitor);
+            }
+            this.asyncTaskCandidates.put(aClass, uiMethodVisitors);
+        }
+
+        @Override
+        public boolean isWatching() {
+            return !this.pendingUIMethods.isEmpty() || !this.activeUIMethodVisitors.isEmpty();
+        }
+
+        @Override
+        public void visitElement(@NotNull PsiElement element) {
+            for (AsyncTaskUIMethodVisitor uiMethodVisitor : this.activeUIMethodVisitors.values()) {
+                element.accept(uiMethodVisitor);
+            }
+            AsyncTaskUIMethodVisitor enteredUIMethod = this.pendingUIMethods.remove(element);
+            if (enteredUIMethod != null) {
+                this.activeUIMethodVisitors.put((PsiMethod) element, enteredUIMethod);
+            }
+        }
+
+        @Override
+        public AbstractCodeSmell elementFinished(@NotNull PsiElement element) {
+            if (element instanceof PsiMethod) {
+                this.activeUIMethodVisitors.remove(element);
+            } else if (element instanceof PsiClass) {
+                Map<PsiMethod, AsyncTaskUIMethodVisitor> uiMethodVisitors = this.asyncTaskCandidates.remove(element);
+                if (uiMethodVisitors != null) {
+                    return DetectHeavyAsyncTask.getConstructedCodeSmell((PsiClass) element, uiMethodVisitors);
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
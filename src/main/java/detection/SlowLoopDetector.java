@@ -0,0 +1,144 @@
+package detection;
+
+import codesmell.AbstractCodeSmell;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import index.SlowLoopCandidateIndex;
+import org.jetbrains.annotations.NotNull;
+import profiling.ScanProfiler;
+import utils.Constants;
+import visitors.LoopBodyVisitor;
+
+import java.util.*;
+
+/**
+ * Runs {@link DetectSlowLoop} from the shared walk: the loop header is checked when the loop is entered, and the
+ * references in the loop body are handed to the loops tracking them as the walk passes through.
+ */
+public class SlowLoopDetector extends CodeSmellDetector {
+
+    private static final int COST = 10;
+
+    @NotNull
+    @Override
+    public String getName() {
+        return Constants.SLOW_LOOP;
+    }
+
+    @NotNull
+    @Override
+    public Collection<Class<? extends PsiElement>> getElementTypes() {
+        return Collections.singletonList(PsiForStatement.class);
+    }
+
+    @Override
+    public int getCost() {
+        return COST;
+    }
+
+    @Override
+    public boolean isCandidate(@NotNull PsiElement element, @NotNull FileAnalysisContext context) {
+        return context.isSlowLoopCandidate((PsiForStatement) element);
+    }
+
+    @Override
+    public Collection<VirtualFile> getCandidateFiles(@NotNull Project project, @NotNull Collection<VirtualFile> files) {
+        return DumbService.isDumb(project) ? null
+                : SlowLoopCandidateIndex.getFilesWithCandidates(GlobalSearchScope.filesScope(project, files));
+    }
+
+    @NotNull
+    @Override
+    public Session createSession(@NotNull FileAnalysisContext context, @NotNull ScanProfiler profiler) {
+        return new SlowLoopSession(context);
+    }
+
+    private static class SlowLoopSession extends Session {
+
+        private final FileAnalysisContext context;
+
+        // Candidates that passed the loop header checks, keyed by the loop body they still have to see
+        private final Map<PsiElement, LoopBodyVisitor> pendingLoopBodies = new HashMap<>();
+        private final Map<PsiForStatement, LoopBodyVisitor> loopBodyVisitors = new HashMap<>();
+        // Candidates whose loop body is being walked, keyed by the variables they track, so that each reference is only
+        // resolved once and handed to the loops that care about it, however deeply the loops are nested
+        private final Map<PsiVariable, List<LoopBodyVisitor>> activeLoopBodyVisitors = new HashMap<>();
+
+        private SlowLoopSession(FileAnalysisContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void visitCandidate(@NotNull PsiElement element) {
+            PsiForStatement forStatement = (PsiForStatement) element;
+            LoopBodyVisitor loopBodyVisitor = DetectSlowLoop.createLoopBodyVisitor(forStatement, this.context);
+            if (loopBodyVisitor != null) {
+                this.loopBodyVisitors.put(forStatement, loopBodyVisitor);
+                this.pendingLoopBodies.put(forStatement.getBody(), loopBodyVisitor);
+            }
+        }
+
+        @Override
+        public boolean isWatching() {
+            return !this.pendingLoopBodies.isEmpty() || !this.activeLoopBodyVisitors.isEmpty();
+        }
+
+        @Override
+        public void visitElement(@NotNull PsiElement element) {
+            if (element instanceof PsiReferenceExpression && !this.activeLoopBodyVisitors.isEmpty()) {
+                visitVariableReference((PsiReferenceExpression) element);
+            }
+            LoopBodyVisitor enteredLoopBody = this.pendingLoopBodies.remove(element);
+            if (enteredLoopBody != null) {
+                activate(enteredLoopBody);
+            }
+        }
+
+        private void visitVariableReference(PsiReferenceExpression expression) {
+            PsiVariable variable = LoopBodyVisitor.resolveVariable(expression, this.context);
+            List<LoopBodyVisitor> interestedVisitors = variable == null ? null : this.activeLoopBodyVisitors.get(variable);
+            if (interestedVisitors != null) {
+                for (LoopBodyVisitor loopBodyVisitor : new ArrayList<>(interestedVisitors)) {
+                    loopBodyVisitor.visitVariableReference(expression, variable);
+                    if (loopBodyVisitor.isRuledOut()) {
+                        // Stop feeding the loop anything else once it can no longer be a Slow Loop
+                        deactivate(loopBodyVisitor);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public AbstractCodeSmell elementFinished(@NotNull PsiElement element) {
+            if (!(element instanceof PsiForStatement)) {
+                return null;
+            }
+            LoopBodyVisitor loopBodyVisitor = this.loopBodyVisitors.remove(element);
+            if (loopBodyVisitor == null) {
+                return null;
+            }
+            deactivate(loopBodyVisitor);
+            return loopBodyVisitor.getConstructedCodeSmell((PsiForStatement) element);
+        }
+
+        private void activate(LoopBodyVisitor loopBodyVisitor) {
+            for (PsiVariable variable : loopBodyVisitor.getTrackedVariables()) {
+                this.activeLoopBodyVisitors.computeIfAbsent(variable, v -> new ArrayList<>(1)).add(loopBodyVisitor);
+            }
+        }
+
+        private void deactivate(LoopBodyVisitor loopBodyVisitor) {
+            for (PsiVariable variable : loopBodyVisitor.getTrackedVariables()) {
+                List<LoopBodyVisitor> visitors = this.activeLoopBodyVisitors.get(variable);
+                if (visitors != null && visitors.remove(loopBodyVisitor) && visitors.isEmpty()) {
+                    this.activeLoopBodyVisitors.remove(variable);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package detection;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiUtil;
+import settings.CodeSmellSettings;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides whether a type belongs to the Android UI: subclasses of {@code android.view.View}, classes of the
+ * {@code android.widget} and {@code android.app} packages, and subclasses of the extra UI types configured in the
+ * settings. The verdict for each class is cached by its qualified name, so the cache keeps no PSI reachable, until
+ * the class hierarchy or the configured types change.
+ */
+public class UITypeClassifier {
+
+    private static final String VIEW_CLASS = "android.view.View";
+    private static final Set<String> UI_PACKAGES = new HashSet<>(Arrays.asList("android.widget", "android.app"));
+
+    private final PsiModificationTracker modificationTracker;
+    private volatile Verdicts verdicts;
+
+    public UITypeClassifier(Project project) {
+        this.modificationTracker = PsiModificationTracker.SERVICE.getInstance(project);
+    }
+
+    public static UITypeClassifier getInstance(Project project) {
+        return ServiceManager.getService(project, UITypeClassifier.class);
+    }
+
+    public boolean isUIType(PsiType type) {
+        PsiClass classOfType = PsiUtil.resolveClassInType(type);
+        return classOfType != null && isUIClass(classOfType);
+    }
+
+    public boolean isUIClass(PsiClass aClass) {
+        Verdicts verdicts = getVerdicts();
+        String qualifiedName = aClass.getQualifiedName();
+        if (qualifiedName == null) {
+            // Local and anonymous classes have no name to cache them by, and are rarely the type of anything
+            return classify(aClass, verdicts.uiBaseClasses);
+        }
+        Boolean isUIClass = verdicts.verdicts.get(qualifiedName);
+        if (isUIClass == null) {
+            isUIClass = classify(aClass, verdicts.uiBaseClasses);
+            verdicts.verdicts.put(qualifiedName, isUIClass);
+        }
+        return isUIClass;
+    }
+
+    private Verdicts getVerdicts() {
+        long structureModificationCount = this.modificationTracker.getJavaStructureModificationCount();
+        List<String> extraUITypes = CodeSmellSettings.getInstance().getExtraUITypes();
+        Verdicts verdicts = this.verdicts;
+        // Start over with an empty cache whenever a hierarchy may have changed. Workers still classifying against
+        // the previous state only ever write into the map that has just been discarded.
+        if (verdicts == null || verdicts.structureModificationCount != structureModificationCount
+                || verdicts.extraUITypes != extraUITypes) {
+            verdicts = new Verdicts(structureModificationCount, extraUITypes);
+            this.verdicts = verdicts;
+        }
+        return verdicts;
+    }
+
+    private static boolean classify(PsiClass aClass, Set<String> uiBaseClasses) {
+        if (UI_PACKAGES.contains(PsiUtil.getPackageName(aClass))) {
+            return true;
+        }
+        // A single walk of the supertypes checks the View class and every configured type at once
+        return !InheritanceUtil.processSupers(aClass, true,
+                superClass -> !uiBaseClasses.contains(superClass.getQualifiedName()));
+    }
+
+    private static class Verdicts {
+
+        private final long structureModificationCount;
+        private final List<String> extraUITypes;
+        private final Set<String> uiBaseClasses;
+        private final ConcurrentMap<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+        private Verdicts(long structureModificationCount, List<String> extraUITypes) {
+            this.structureModificationCount = structureModificationCount;
+            this.extraUITypes = extraUITypes;
+            this.uiBaseClasses = new HashSet<>(extraUITypes);
+            this.uiBaseClasses.add(VIEW_CLASS);
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package headless;
+
+import codesmell.CodeSmell;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain snapshot of a code smell for reports, holding no PSI so it can be written out after the read action ends.
+ */
+public class CodeSmellRecord {
+
+    private final String filePath;
+    private final int line;
+    private final String type;
+    private final String message;
+    private final List<Replacement> replacements;
+
+    private CodeSmellRecord(String filePath, int line, String type, String message, List<Replacement> replacements) {
+        this.filePath = filePath;
+        this.line = line;
+        this.type = type;
+        this.message = message;
+        this.replacements = replacements;
+    }
+
+    /**
+     * Must be called inside a read action.
+     */
+    public static CodeSmellRecord create(Project project, PsiFile psiFile, CodeSmell codeSmell) {
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+        List<Replacement> replacements = new ArrayList<>();
+        for (Map.Entry<PsiElement, String> entry : codeSmell.getMappingFromPsiElementToRefactoring().entrySet()) {
+            TextRange range = entry.getKey().getTextRange();
+            replacements.add(new Replacement(range.getStartOffset(), range.getEndOffset(),
+                    getLineNum(document, range.getStartOffset()), entry.getValue()));
+        }
+        int line = getLineNum(document, codeSmell.getNavigationElement().getTextOffset());
+        return new CodeSmellRecord(getRelativePath(project, virtualFile), line, codeSmell.getName(),
+                codeSmell.getShortDescription(), Collections.unmodifiableList(replacements));
+    }
+
+    private static int getLineNum(Document document, int offset) {
+        return document == null ? 0 : document.getLineNumber(offset) + 1;
+    }
+
+    private static String getRelativePath(Project project, VirtualFile virtualFile) {
+        VirtualFile baseDir = project.getBaseDir();
+        String relativePath = baseDir == null ? null : VfsUtilCore.getRelativePath(virtualFile, baseDir);
+        return relativePath == null ? virtualFile.getPath() : relativePath;
+    }
+
+    public String getFilePath() {
+        return this.filePath;
+    }
+
+    public int getLine() {
+        return this.line;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public String getRuleId() {
+        return this.type.replace(" ", "");
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    public List<Replacement> getReplacements() {
+        return this.replacements;
+    }
+
+    public static class Replacement {
+
+        private final int startOffset;
+        private final int endOffset;
+        private final int startLine;
+        private final String text;
+
+        private Replacement(int startOffset, int endOffset, int startLine, String text) {
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.startLine = startLine;
+            this.text = text;
+        }
+
+        public int getStartOffset() {
+            return this.startOffset;
+        }
+
+        public int getEndOffset() {
+            return this.endOffset;
+        }
+
+        public int getStartLine() {
+            return this.startLine;
+        }
+
+        public String getText() {
+            return this.text;
+        }
+
+    }
+
+}
@@ -0,0 +1,52 @@
+package headless;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams code smell records to a report file as they are found, so the whole report never has to be held in memory.
+ * Records may be written from several scanner threads at once.
+ */
+public abstract class CodeSmellReportWriter implements Closeable {
+
+    protected final JsonWriter json;
+
+    protected CodeSmellReportWriter(Writer writer) {
+        this.json = new JsonWriter(writer);
+        this.json.setIndent("  ");
+    }
+
+    public static CodeSmellReportWriter create(ReportFormat format, Writer writer) {
+        switch (format) {
+            case SARIF:
+                return new SarifReportWriter(writer);
+            case JSON:
+            default:
+                return new JsonReportWriter(writer);
+        }
+    }
+
+    public abstract void begin() throws IOException;
+
+    public final synchronized void write(CodeSmellRecord record) throws IOException {
+        writeRecord(record);
+    }
+
+    protected abstract void writeRecord(CodeSmellRecord record) throws IOException;
+
+    public abstract void finish(ScanSummary summary) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        this.json.close();
+    }
+
+    public enum ReportFormat {
+        JSON,
+        SARIF
+    }
+
+}
@@ -0,0 +1,270 @@
+package headless;
+
+import baseline.BaselineManager;
+import baseline.CodeSmellBaseline;
+import codesmell.CodeSmell;
+import codesmell.CodeSmellFingerprint;
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarterEx;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFile;
+import profiling.ScanProfiler;
+import scan.CodeSmellScanner;
+import scope.ScanScope;
+import settings.CodeSmellSettings;
+import utils.Constants;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless entry point for running the detectors in CI without opening the IDE:
+ * <pre>
+ *   idea.sh detect-code-smells &lt;project dir&gt; [--format=json|sarif] [--output=&lt;file&gt;] [--threads=&lt;n&gt;]
+ *                              [--profile=&lt;trace file&gt;] [--scope=&lt;scope&gt;]
+ *                              [--baseline=&lt;file&gt;] [--write-baseline]
+ * </pre>
+ * The scope defaults to the whole project, see {@link ScanScope#parse(Project, String)} for the others. Pre-merge
+ * checks can pass {@code --scope=since:<target branch>} to only scan the files the branch changed.
+ * Code smells recorded in the baseline, by default {@link Constants#BASELINE_FILE_NAME} in the project directory, are
+ * left out of the report. {@code --write-baseline} instead records every code smell found as the new baseline, which
+ * replaces the whole file and so only goes with the project scope.
+ * Exits with {@link #EXIT_CLEAN} if no code smells were found, {@link #EXIT_CODE_SMELLS_FOUND} if some were,
+ * {@link #EXIT_USAGE} for invalid arguments and {@link #EXIT_FAILURE} if the scan itself failed.
+ */
+public class CodeSmellScanStarter extends ApplicationStarterEx {
+
+    public static final int EXIT_CLEAN = 0;
+    public static final int EXIT_CODE_SMELLS_FOUND = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_FAILURE = 3;
+
+    private static final String COMMAND_NAME = "detect-code-smells";
+
+    private Options options;
+
+    @Override
+    public String getCommandName() {
+        return COMMAND_NAME;
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public void premain(String[] args) {
+        this.options = Options.parse(args);
+        if (this.options == null) {
+            printUsage();
+            System.exit(EXIT_USAGE);
+        }
+    }
+
+    @Override
+    public void main(String[] args) {
+        long start = System.currentTimeMillis();
+        ScanSummary.resetPeakHeapUsage();
+
+        Project project = ProjectUtil.openOrImport(this.options.projectPath, null, false);
+        if (project == null) {
+            System.err.println("ERROR: Unable to open project at " + this.options.projectPath);
+            System.exit(EXIT_FAILURE);
+            return;
+        }
+
+        // Run the scan off the EDT, so the scanner's workers and the indexing they wait for can make progress
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            int exitCode;
+            try {
+                exitCode = scan(project, start);
+            } catch (Throwable t) {
+                t.printStackTrace();
+                exitCode = EXIT_FAILURE;
+            }
+            int finalExitCode = exitCode;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                ProjectManager.getInstance().closeProject(project);
+                System.exit(finalExitCode);
+            });
+        });
+    }
+
+    private int scan(Project project, long start) throws IOException {
+        if (this.options.writeBaseline && !this.options.scope.equals("project")) {
+            // A narrower scan would drop the accepted code smells of every file outside of it from the baseline
+            System.err.println("ERROR: --write-baseline records the code smells of the whole project, it cannot be combined with --scope="
+                    + this.options.scope);
+            printUsage();
+            return EXIT_USAGE;
+        }
+        ScanScope scope;
+        try {
+            scope = ScanScope.parse(project, this.options.scope);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            printUsage();
+            return EXIT_USAGE;
+        }
+        DumbService.getInstance(project).waitForSmartMode();
+        ScanProfiler profiler = this.options.profilePath != null ? ScanProfiler.create() : ScanProfiler.DISABLED;
+        long collectStart = profiler.start();
+        Collection<VirtualFile> files;
+        try {
+            files = scope.collectFiles(project, new EmptyProgressIndicator());
+        } catch (VcsException e) {
+            System.err.println("ERROR: Unable to collect the files of " + scope.getName() + ": " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        System.out.println("Scanning " + files.size() + " file(s) in " + scope.getName());
+        profiler.phaseFinished(ScanProfiler.Phase.COLLECT_FILES, collectStart);
+
+        File baselineFile = this.options.baselinePath != null ? new File(this.options.baselinePath)
+                : BaselineManager.getInstance(project).getBaselineFile();
+        if (this.options.baselinePath != null && !this.options.writeBaseline && !baselineFile.isFile()) {
+            System.err.println("ERROR: No baseline found at " + baselineFile.getAbsolutePath());
+            return EXIT_USAGE;
+        }
+        CodeSmellBaseline baseline = CodeSmellBaseline.EMPTY;
+        if (!this.options.writeBaseline && baselineFile != null && baselineFile.isFile()) {
+            baseline = CodeSmellBaseline.read(baselineFile, project.getBasePath());
+            System.out.println("Leaving out the " + baseline.size() + " code smell(s) of the baseline " + baselineFile.getAbsolutePath());
+        }
+        List<CodeSmellFingerprint> fingerprints = Collections.synchronizedList(new ArrayList<>());
+
+        int threads = this.options.threads > 0 ? this.options.threads : CodeSmellSettings.getInstance().getScanParallelism();
+        AtomicInteger codeSmellCount = new AtomicInteger();
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        File output = new File(this.options.outputPath);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8));
+             CodeSmellReportWriter report = CodeSmellReportWriter.create(this.options.format, writer)) {
+            report.begin();
+            new CodeSmellScanner(project, threads, profiler, baseline).scan(files, new EmptyProgressIndicator(), (psiFile, codeSmells) -> {
+                if (this.options.writeBaseline) {
+                    for (CodeSmell codeSmell : codeSmells) {
+                        fingerprints.add(codeSmell.getFingerprint());
+                    }
+                }
+                // Snapshot the records in a read action, then stream them out without holding it. Both are part of
+                // the report phase timed by the scanner
+                List<CodeSmellRecord> records = ReadAction.compute(() -> {
+                    List<CodeSmellRecord> fileRecords = new ArrayList<>();
+                    for (CodeSmell codeSmell : codeSmells) {
+                        fileRecords.add(CodeSmellRecord.create(project, psiFile, codeSmell));
+                    }
+                    return fileRecords;
+                });
+                try {
+                    for (CodeSmellRecord record : records) {
+                        report.write(record);
+                    }
+                } catch (IOException e) {
+                    writeFailure.compareAndSet(null, e);
+                }
+                codeSmellCount.addAndGet(records.size());
+            });
+            if (writeFailure.get() != null) {
+                throw writeFailure.get();
+            }
+
+            ScanSummary summary = new ScanSummary(files.size(), codeSmellCount.get(),
+                    System.currentTimeMillis() - start, ScanSummary.getPeakHeapUsage());
+            report.finish(summary);
+            System.out.println(summary);
+            System.out.println("Report written to " + output.getAbsolutePath());
+        }
+        if (this.options.writeBaseline) {
+            if (baselineFile == null) {
+                System.err.println("ERROR: The project has no directory to keep the baseline in, pass --baseline=<file>");
+                return EXIT_FAILURE;
+            }
+            CodeSmellBaseline.write(baselineFile, project.getBasePath(), fingerprints);
+            System.out.println("Baseline of " + fingerprints.size() + " code smell(s) written to " + baselineFile.getAbsolutePath());
+        }
+        if (profiler.isEnabled()) {
+            System.out.println(profiler.getReport(Constants.PROFILE_REPORT_MAX_FILES));
+            File trace = new File(this.options.profilePath);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(trace), StandardCharsets.UTF_8))) {
+                profiler.writeTrace(writer);
+            }
+            System.out.println("Scan timeline written to " + trace.getAbsolutePath());
+        }
+        // Every code smell found has just been accepted when writing the baseline
+        return codeSmellCount.get() == 0 || this.options.writeBaseline ? EXIT_CLEAN : EXIT_CODE_SMELLS_FOUND;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: " + COMMAND_NAME + " <project dir> [--format=json|sarif] [--output=<file>] [--threads=<n>] [--profile=<trace file>]"
+                + " [--scope=project|uncommitted|changelist:<name>|since:<revision>|module:<names>|dir:<paths>]"
+                + " [--baseline=<file>] [--write-baseline]");
+    }
+
+    private static class Options {
+
+        private String projectPath;
+        private CodeSmellReportWriter.ReportFormat format = CodeSmellReportWriter.ReportFormat.JSON;
+        private String outputPath;
+        // Zero means the scan parallelism configured in the IDE settings
+        private int threads = 0;
+        private String profilePath;
+        private String scope = "project";
+        // Null means the baseline in the project directory
+        private String baselinePath;
+        private boolean writeBaseline;
+
+        private static Options parse(String[] args) {
+            Options options = new Options();
+            // The first argument is the command name itself
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                try {
+                    if (arg.startsWith("--format=")) {
+                        options.format = CodeSmellReportWriter.ReportFormat.valueOf(
+                                arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+                    } else if (arg.startsWith("--output=")) {
+                        options.outputPath = arg.substring("--output=".length());
+                    } else if (arg.startsWith("--threads=")) {
+                        options.threads = Integer.parseInt(arg.substring("--threads=".length()));
+                    } else if (arg.startsWith("--scope=")) {
+                        options.scope = arg.substring("--scope=".length());
+                    } else if (arg.startsWith("--baseline=")) {
+                        options.baselinePath = arg.substring("--baseline=".length());
+                    } else if (arg.equals("--write-baseline")) {
+                        options.writeBaseline = true;
+                    } else if (arg.startsWith("--profile=")) {
+                        options.profilePath = arg.substring("--profile=".length());
+                    } else if (!arg.startsWith("--") && options.projectPath == null) {
+                        options.projectPath = new File(arg).getAbsolutePath();
+                    } else {
+                        return null;
+                    }
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+            if (options.projectPath == null || options.threads < 0) {
+                return null;
+            }
+            if (options.outputPath == null) {
+                options.outputPath = "code-smells." + options.format.name().toLowerCase(Locale.ROOT);
+            }
+            return options;
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package headless;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class JsonReportWriter extends CodeSmellReportWriter {
+
+    public JsonReportWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        this.json.beginObject();
+        this.json.name("codeSmells").beginArray();
+    }
+
+    @Override
+    protected void writeRecord(CodeSmellRecord record) throws IOException {
+        this.json.beginObject();
+        this.json.name("file").value(record.getFilePath());
+        this.json.name("line").value(record.getLine());
+        this.json.name("type").value(record.getType());
+        this.json.name("message").value(record.getMessage());
+        this.json.name("replacements").beginArray();
+        for (CodeSmellRecord.Replacement replacement : record.getReplacements()) {
+            this.json.beginObject();
+            this.json.name("line").value(replacement.getStartLine());
+            this.json.name("startOffset").value(replacement.getStartOffset());
+            this.json.name("endOffset").value(replacement.getEndOffset());
+            this.json.name("text").value(replacement.getText());
+            this.json.endObject();
+        }
+        this.json.endArray();
+        this.json.endObject();
+    }
+
+    @Override
+    public void finish(ScanSummary summary) throws IOException {
+        this.json.endArray();
+        this.json.name("summary").beginObject();
+        this.json.name("filesScanned").value(summary.getFilesScanned());
+        this.json.name("codeSmells").value(summary.getCodeSmells());
+        this.json.name("wallTimeMillis").value(summary.getWallTimeMillis());
+        this.json.name("peakHeapBytes").value(summary.getPeakHeapBytes());
+        this.json.endObject();
+        this.json.endObject();
+    }
+
+}
@@ -0,0 +1,104 @@
+package headless;
+
+import utils.Constants;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a SARIF 2.1.0 log with a single run, so results can be uploaded to code scanning dashboards as they are.
+ */
+public class SarifReportWriter extends CodeSmellReportWriter {
+
+    private static final String SARIF_SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final String TOOL_NAME = "Automatic Android Code Smell Refactoring Tool";
+
+    public SarifReportWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        this.json.beginObject();
+        this.json.name("$schema").value(SARIF_SCHEMA);
+        this.json.name("version").value("2.1.0");
+        this.json.name("runs").beginArray();
+        this.json.beginObject();
+        this.json.name("tool").beginObject();
+        this.json.name("driver").beginObject();
+        this.json.name("name").value(TOOL_NAME);
+        this.json.name("rules").beginArray();
+        writeRule("SlowLoop", Constants.SLOW_LOOP, "Counted or iterator loop that should use for-each syntax");
+        writeRule("HeavyAsyncTask", Constants.HEAVY_ASYNC_TASK, "AsyncTask UI callback doing work that belongs in doInBackground()");
+        this.json.endArray();
+        this.json.endObject();
+        this.json.endObject();
+        this.json.name("results").beginArray();
+    }
+
+    private void writeRule(String id, String name, String description) throws IOException {
+        this.json.beginObject();
+        this.json.name("id").value(id);
+        this.json.name("name").value(name);
+        this.json.name("shortDescription").beginObject().name("text").value(description).endObject();
+        this.json.endObject();
+    }
+
+    @Override
+    protected void writeRecord(CodeSmellRecord record) throws IOException {
+        this.json.beginObject();
+        this.json.name("ruleId").value(record.getRuleId());
+        this.json.name("level").value("warning");
+        this.json.name("message").beginObject().name("text").value(record.getMessage()).endObject();
+        this.json.name("locations").beginArray();
+        this.json.beginObject();
+        this.json.name("physicalLocation").beginObject();
+        writeArtifactLocation(record);
+        this.json.name("region").beginObject().name("startLine").value(record.getLine()).endObject();
+        this.json.endObject();
+        this.json.endObject();
+        this.json.endArray();
+
+        this.json.name("fixes").beginArray();
+        this.json.beginObject();
+        this.json.name("description").beginObject().name("text").value("Refactor " + record.getType() + " code smell").endObject();
+        this.json.name("artifactChanges").beginArray();
+        this.json.beginObject();
+        writeArtifactLocation(record);
+        this.json.name("replacements").beginArray();
+        for (CodeSmellRecord.Replacement replacement : record.getReplacements()) {
+            this.json.beginObject();
+            this.json.name("deletedRegion").beginObject();
+            this.json.name("charOffset").value(replacement.getStartOffset());
+            this.json.name("charLength").value(replacement.getEndOffset() - replacement.getStartOffset());
+            this.json.endObject();
+            this.json.name("insertedContent").beginObject().name("text").value(replacement.getText()).endObject();
+            this.json.endObject();
+        }
+        this.json.endArray();
+        this.json.endObject();
+        this.json.endArray();
+        this.json.endObject();
+        this.json.endArray();
+
+        this.json.endObject();
+    }
+
+    private void writeArtifactLocation(CodeSmellRecord record) throws IOException {
+        this.json.name("artifactLocation").beginObject().name("uri").value(record.getFilePath()).endObject();
+    }
+
+    @Override
+    public void finish(ScanSummary summary) throws IOException {
+        this.json.endArray();
+        this.json.name("properties").beginObject();
+        this.json.name("filesScanned").value(summary.getFilesScanned());
+        this.json.name("wallTimeMillis").value(summary.getWallTimeMillis());
+        this.json.name("peakHeapBytes").value(summary.getPeakHeapBytes());
+        this.json.endObject();
+        this.json.endObject();
+        this.json.endArray();
+        this.json.endObject();
+    }
+
+}
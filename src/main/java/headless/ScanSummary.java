@@ -0,0 +1,70 @@
+package headless;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+public class ScanSummary {
+
+    private final int filesScanned;
+    private final int codeSmells;
+    private final long wallTimeMillis;
+    private final long peakHeapBytes;
+
+    public ScanSummary(int filesScanned, int codeSmells, long wallTimeMillis, long peakHeapBytes) {
+        this.filesScanned = filesScanned;
+        this.codeSmells = codeSmells;
+        this.wallTimeMillis = wallTimeMillis;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    public static long getPeakHeapUsage() {
+        // Sum of each heap pool's peak, which bounds the true peak of the heap as a whole from above
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    public int getFilesScanned() {
+        return this.filesScanned;
+    }
+
+    public int getCodeSmells() {
+        return this.codeSmells;
+    }
+
+    public long getWallTimeMillis() {
+        return this.wallTimeMillis;
+    }
+
+    public long getPeakHeapBytes() {
+        return this.peakHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.codeSmells);
+        sb.append(" code smell(s) in ");
+        sb.append(this.filesScanned);
+        sb.append(" file(s). Wall-clock time: ");
+        sb.append(this.wallTimeMillis);
+        sb.append(" ms. Peak heap: ");
+        sb.append(this.peakHeapBytes / (1024 * 1024));
+        sb.append(" MB.");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,222 @@
+package index;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.lang.java.lexer.JavaLexer;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWithId;
+import com.intellij.pom.java.LanguageLevel;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.source.tree.ElementType;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorIntegerDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Records, for every Java file, the offsets of the {@code for} statements that may be Slow Loops, found from the
+ * lexer alone without building any PSI. A loop is a candidate if its condition mentions {@code .length},
+ * {@code size()} or {@code hasNext()}, or only compares two names, as the bound may be a variable initialized
+ * with one of those. Files without candidates are not listed at all.
+ */
+public class SlowLoopCandidateIndex extends FileBasedIndexExtension<Integer, int[]> {
+
+    public static final ID<Integer, int[]> NAME = ID.create("code.smell.slow.loop.candidates");
+
+    // The index has a single key, under which each file lists its candidate offsets
+    private static final Integer KEY = 0;
+    private static final int[] NO_OFFSETS = new int[0];
+
+    @NotNull
+    @Override
+    public ID<Integer, int[]> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<Integer, int[], FileContent> getIndexer() {
+        return inputData -> {
+            int[] offsets = findCandidateOffsets(inputData.getContentAsText());
+            return offsets.length == 0 ? Collections.emptyMap() : Collections.singletonMap(KEY, offsets);
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<Integer> getKeyDescriptor() {
+        return EnumeratorIntegerDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<int[]> getValueExternalizer() {
+        return new DataExternalizer<int[]>() {
+            @Override
+            public void save(@NotNull DataOutput out, int[] offsets) throws IOException {
+                // The offsets are ascending, so deltas keep the values small
+                DataInputOutputUtil.writeINT(out, offsets.length);
+                int previous = 0;
+                for (int offset : offsets) {
+                    DataInputOutputUtil.writeINT(out, offset - previous);
+                    previous = offset;
+                }
+            }
+
+            @Override
+            public int[] read(@NotNull DataInput in) throws IOException {
+                int[] offsets = new int[DataInputOutputUtil.readINT(in)];
+                int previous = 0;
+                for (int i = 0; i < offsets.length; i++) {
+                    previous += DataInputOutputUtil.readINT(in);
+                    offsets[i] = previous;
+                }
+                return offsets;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * @return the files in the scope that contain at least one candidate loop
+     */
+    public static Collection<VirtualFile> getFilesWithCandidates(GlobalSearchScope scope) {
+        return FileBasedIndex.getInstance().getContainingFiles(NAME, KEY, scope);
+    }
+
+    /**
+     * Must be called inside a read action.
+     *
+     * @return the ascending start offsets of the candidate loops of the file, or null if the index cannot tell, e.g.
+     * while indexing or for a file whose PSI is ahead of the indexed text, in which case every loop is a candidate
+     */
+    @Nullable
+    public static int[] getCandidateOffsets(PsiFile psiFile) {
+        Project project = psiFile.getProject();
+        VirtualFile virtualFile = psiFile.getViewProvider().getVirtualFile();
+        if (!(virtualFile instanceof VirtualFileWithId) || DumbService.isDumb(project)) {
+            return null;
+        }
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        Document document = documentManager.getCachedDocument(psiFile);
+        if (document != null && documentManager.isUncommited(document)) {
+            return null;
+        }
+        List<int[]> values = FileBasedIndex.getInstance().getValues(NAME, KEY, GlobalSearchScope.fileScope(project, virtualFile));
+        return values.isEmpty() ? NO_OFFSETS : values.get(0);
+    }
+
+    static int[] findCandidateOffsets(CharSequence text) {
+        JavaLexer lexer = new JavaLexer(LanguageLevel.HIGHEST);
+        lexer.start(text);
+        List<Integer> offsets = new ArrayList<>();
+        for (IElementType tokenType = lexer.getTokenType(); tokenType != null; tokenType = lexer.getTokenType()) {
+            if (tokenType == JavaTokenType.FOR_KEYWORD) {
+                int forOffset = lexer.getTokenStart();
+                lexer.advance();
+                if (isCandidateHeader(lexer)) {
+                    offsets.add(forOffset);
+                }
+            } else {
+                lexer.advance();
+            }
+        }
+        int[] result = new int[offsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the loop header the lexer is positioned at, stopping at the token after its closing parenthesis or at
+     * the first token that rules the loop out.
+     */
+    private static boolean isCandidateHeader(JavaLexer lexer) {
+        skipWhitespaceAndComments(lexer);
+        if (lexer.getTokenType() != JavaTokenType.LPARENTH) {
+            return false;
+        }
+        lexer.advance();
+        int depth = 1;
+        // 0 for the initialization, 1 for the condition and 2 for the update
+        int section = 0;
+        boolean hasCollectionBound = false;
+        boolean onlyComparesNames = true;
+        boolean hasComparison = false;
+        IElementType previous = null;
+        String previousText = null;
+        for (IElementType tokenType = lexer.getTokenType(); tokenType != null && depth > 0; tokenType = lexer.getTokenType()) {
+            if (ElementType.JAVA_COMMENT_OR_WHITESPACE_BIT_SET.contains(tokenType)) {
+                lexer.advance();
+                continue;
+            }
+            if (tokenType == JavaTokenType.LPARENTH) {
+                depth++;
+            } else if (tokenType == JavaTokenType.RPARENTH) {
+                depth--;
+            } else if (depth == 1 && tokenType == JavaTokenType.SEMICOLON) {
+                section++;
+            } else if (depth == 1 && tokenType == JavaTokenType.COLON) {
+                // A for-each loop
+                return false;
+            }
+            if (section == 1 && tokenType != JavaTokenType.SEMICOLON) {
+                String tokenText = lexer.getTokenSequence().toString();
+                if (previous == JavaTokenType.DOT && tokenType == JavaTokenType.IDENTIFIER && "length".equals(tokenText)) {
+                    hasCollectionBound = true;
+                } else if (previous == JavaTokenType.IDENTIFIER && tokenType == JavaTokenType.LPARENTH
+                        && ("size".equals(previousText) || "hasNext".equals(previousText))) {
+                    hasCollectionBound = true;
+                }
+                if (tokenType == JavaTokenType.LT || tokenType == JavaTokenType.GT) {
+                    hasComparison = true;
+                } else if (tokenType != JavaTokenType.IDENTIFIER && tokenType != JavaTokenType.DOT
+                        && tokenType != JavaTokenType.THIS_KEYWORD && tokenType != JavaTokenType.LPARENTH
+                        && tokenType != JavaTokenType.RPARENTH) {
+                    onlyComparesNames = false;
+                }
+                previous = tokenType;
+                previousText = tokenText;
+            }
+            lexer.advance();
+        }
+        return section == 2 && (hasCollectionBound || hasComparison && onlyComparesNames);
+    }
+
+    private static void skipWhitespaceAndComments(JavaLexer lexer) {
+        while (lexer.getTokenType() != null && ElementType.JAVA_COMMENT_OR_WHITESPACE_BIT_SET.contains(lexer.getTokenType())) {
+            lexer.advance();
+        }
+    }
+
+}
@@ -1,26 +1,34 @@
 package inspections;
 
 import codesmell.CodeSmell;
+import codesmell.CodeSmellPointer;
 import com.intellij.codeInspection.LocalQuickFix;
 import com.intellij.codeInspection.ProblemDescriptor;
-import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.siyeh.ig.psiutils.CommentTracker;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
-import utils.Utils;
+import refactoring.BatchRefactoring;
 
-import java.util.Map;
+import java.util.Collections;
 
 public class CodeSmellFix implements LocalQuickFix {
 
     private static final String CODE_SMELL_FIX = "Refactor detected code smell";
 
     private final CodeSmell codeSmell;
+    // Held instead of the code smell by fixes that outlive the highlighting pass, e.g. in the inspection results view
+    private final CodeSmellPointer codeSmellPointer;
 
     public CodeSmellFix(CodeSmell codeSmell) {
         this.codeSmell = codeSmell;
+        this.codeSmellPointer = null;
+    }
+
+    public CodeSmellFix(CodeSmellPointer codeSmellPointer) {
+        this.codeSmell = null;
+        this.codeSmellPointer = codeSmellPointer;
     }
 
     @Nls(capitalization = Nls.Capitalization.Sentence)
@@ -40,15 +48,13 @@ public class CodeSmellFix implements LocalQuickFix {
     @Override
     public void applyFix(@NotNull Project project, @NotNull ProblemDescriptor descriptor) {
         PsiElement descriptorElement = descriptor.getPsiElement();
+        CodeSmell codeSmell = this.codeSmell != null ? this.codeSmell : this.codeSmellPointer.resolve();
         // Safety check to ensure no improper refactoring takes place
-        Map<PsiElement, String> refactoringMapping = this.codeSmell.getMappingFromPsiElementToRefactoring();
-        if (!refactoringMapping.containsKey(descriptorElement)) {
+        if (codeSmell == null || !codeSmell.getRefactoringAnchors().contains(descriptorElement)) {
             return;
         }
 
-        WriteCommandAction.runWriteCommandAction(project, () -> {
-            Utils.refactorCodeSegment(project, refactoringMapping);
-        });
+        BatchRefactoring.prepare(project, Collections.singletonList(codeSmell)).apply();
     }
 
 }
@@ -0,0 +1,64 @@
+package inspections;
+
+import baseline.BaselineManager;
+import codesmell.CodeSmell;
+import codesmell.CodeSmellPointer;
+import com.intellij.codeInspection.*;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import org.jetbrains.annotations.NotNull;
+import scan.CodeSmellCache;
+
+import java.util.Set;
+
+/**
+ * Batch form of the checks for a single kind of code smell, for the IDE's "Inspect Code" runner and offline
+ * inspections. As a simple global inspection, each file is checked on its own in the platform's parallel pass, which
+ * brings its scoping, progress and results view. Files are analyzed through the same project cache as the editor,
+ * so files already highlighted are not analyzed again.
+ * <p>
+ * The fixes only hold pointers to the code smells, so the results of a whole project do not keep every affected
+ * file's syntax tree in memory.
+ */
+public abstract class CodeSmellGlobalInspection extends GlobalSimpleInspectionTool {
+
+    private volatile LocalInspectionTool sharedLocalInspectionTool;
+
+    /**
+     * @return the name of the code smells reported by this inspection, see {@link CodeSmell#getName()}
+     */
+    @NotNull
+    protected abstract String getCodeSmellName();
+
+    @Override
+    public void checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager, @NotNull ProblemsHolder problemsHolder,
+                          @NotNull GlobalInspectionContext globalContext,
+                          @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        if (!(file instanceof PsiJavaFile)) {
+            return;
+        }
+        Set<CodeSmell> codeSmells = CodeSmellCache.getInstance(file.getProject()).getCodeSmells(file);
+        for (CodeSmell codeSmell : BaselineManager.getInstance(file.getProject()).getBaseline().filterNew(codeSmells)) {
+            if (!getCodeSmellName().equals(codeSmell.getName()) || !codeSmell.isValid()) {
+                continue;
+            }
+            CodeSmellFix fix = new CodeSmellFix(CodeSmellPointer.create(codeSmell));
+            for (PsiElement anchor : codeSmell.getRefactoringAnchors()) {
+                problemsHolder.registerProblem(anchor, codeSmell.getShortDescription(), fix);
+            }
+        }
+    }
+
+    @Override
+    public LocalInspectionTool getSharedLocalInspectionTool() {
+        // Highlights the same code smells in the editor, under the same entry of the inspection profile
+        LocalInspectionTool localInspectionTool = this.sharedLocalInspectionTool;
+        if (localInspectionTool == null) {
+            localInspectionTool = new CodeSmellInspection(getShortName(), getCodeSmellName());
+            this.sharedLocalInspectionTool = localInspectionTool;
+        }
+        return localInspectionTool;
+    }
+
+}
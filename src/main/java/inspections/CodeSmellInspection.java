@@ -1,48 +1,61 @@
 package inspections;
 
+import baseline.BaselineManager;
 import codesmell.CodeSmell;
-import codesmell.heavyasynctask.HeavyAsyncTaskCodeSmell;
-import codesmell.slowloop.SlowLoopCodeSmell;
 import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.psi.*;
-import detection.DetectHeavyAsyncTask;
-import detection.DetectSlowLoop;
 import org.jetbrains.annotations.NotNull;
+import scan.CodeSmellCache;
 
-import java.util.Map;
+import java.util.Set;
 
+/**
+ * On-the-fly form of a {@link CodeSmellGlobalInspection}, which it is shared by, highlighting the code smells of a
+ * single kind in the editor.
+ */
 public class CodeSmellInspection extends AbstractBaseJavaLocalInspectionTool {
 
+    private final String shortName;
+    private final String codeSmellName;
+
+    public CodeSmellInspection(String shortName, String codeSmellName) {
+        this.shortName = shortName;
+        this.codeSmellName = codeSmellName;
+    }
+
+    @NotNull
+    @Override
+    public String getShortName() {
+        return this.shortName;
+    }
+
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder, boolean isOnTheFly) {
         // Need to create separate visitor as the SourceCodeVisitor is recursive, which this inspection
-        // cannot return at this point.
+        // cannot return at this point. Instead, the whole file is analyzed once through the project cache, which
+        // the batch action also reads from, and every smell in it is registered when the file itself is visited.
         return new JavaElementVisitor() {
             @Override
-            public void visitClass(PsiClass aClass) {
-                HeavyAsyncTaskCodeSmell possibleHeavyAsyncTask = DetectHeavyAsyncTask.checkForHeavyAsyncTask(aClass);
-                registerCodeSmell(possibleHeavyAsyncTask, holder);
-                super.visitClass(aClass);
-            }
-
-            @Override
-            public void visitForStatement(PsiForStatement forStatement) {
-                SlowLoopCodeSmell possibleSlowLoop = DetectSlowLoop.checkForSlowLoop(forStatement);
-                registerCodeSmell(possibleSlowLoop, holder);
-                super.visitForStatement(forStatement);
+            public void visitJavaFile(PsiJavaFile file) {
+                Set<CodeSmell> codeSmells = CodeSmellCache.getInstance(file.getProject()).getCodeSmells(file);
+                for (CodeSmell codeSmell : BaselineManager.getInstance(file.getProject()).getBaseline().filterNew(codeSmells)) {
+                    if (CodeSmellInspection.this.codeSmellName.equals(codeSmell.getName())) {
+                        registerCodeSmell(codeSmell, holder);
+                    }
+                }
             }
         };
     }
 
     private void registerCodeSmell(CodeSmell possibleCodeSmell, @NotNull ProblemsHolder holder) {
         if (possibleCodeSmell != null) {
-            Map<PsiElement, String> refactoringMapping = possibleCodeSmell.getMappingFromPsiElementToRefactoring();
-            for (PsiElement element : refactoringMapping.keySet()) {
+            // Only the anchors are needed here, the refactored code is built once the fix is applied
+            for (PsiElement element : possibleCodeSmell.getRefactoringAnchors()) {
                 holder.registerProblem(element, possibleCodeSmell.getShortDescription(), new CodeSmellFix(possibleCodeSmell));
             }
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package inspections;
+
+import org.jetbrains.annotations.NotNull;
+import utils.Constants;
+
+public class HeavyAsyncTaskInspection extends CodeSmellGlobalInspection {
+
+    @NotNull
+    @Override
+    protected String getCodeSmellName() {
+        return Constants.HEAVY_ASYNC_TASK;
+    }
+
+}
@@ -0,0 +1,14 @@
+package inspections;
+
+import org.jetbrains.annotations.NotNull;
+import utils.Constants;
+
+public class SlowLoopInspection extends CodeSmellGlobalInspection {
+
+    @NotNull
+    @Override
+    protected String getCodeSmellName() {
+        return Constants.SLOW_LOOP;
+    }
+
+}
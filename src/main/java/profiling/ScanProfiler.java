@@ -0,0 +1,228 @@
+package profiling;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records where the time of a scan goes: per phase, per detector and per file, plus a timeline of the phases and
+ * files on each thread that can be exported in the Chrome trace event format (chrome://tracing, Perfetto).
+ * Safe to use from the scanner's workers. {@link #DISABLED} records nothing and never reads the clock.
+ */
+public class ScanProfiler {
+
+    public static final ScanProfiler DISABLED = new ScanProfiler(false);
+
+    public enum Phase {
+        COLLECT_FILES("Collect files"),
+        LOAD_PSI("Load PSI"),
+        DETECT("Detect"),
+        // Broken out of the phase it happens in, mostly DETECT, as it is usually most of it. Covers every resolve of
+        // the detectors and refactorings, which all go through the file's analysis context
+        RESOLVE("Resolve references"),
+        REPORT("Report results");
+
+        private final String displayName;
+
+        Phase(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return this.displayName;
+        }
+    }
+
+    private final boolean enabled;
+    private final long origin = System.nanoTime();
+
+    private final ConcurrentMap<Phase, Stats> phaseStats = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stats> detectorStats = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stats> fileStats = new ConcurrentHashMap<>();
+    private final Queue<TraceEvent> traceEvents = new ConcurrentLinkedQueue<>();
+
+    private ScanProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static ScanProfiler create() {
+        return new ScanProfiler(true);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * @return the start time to pass to one of the finished methods, or 0 if nothing is being recorded
+     */
+    public long start() {
+        return this.enabled ? System.nanoTime() : 0;
+    }
+
+    public void phaseFinished(Phase phase, long start) {
+        if (this.enabled) {
+            long end = System.nanoTime();
+            this.phaseStats.computeIfAbsent(phase, p -> new Stats()).add(end - start);
+            // Resolution is far too fine grained for the timeline, only its totals are kept
+            if (phase != Phase.RESOLVE) {
+                this.traceEvents.add(new TraceEvent(phase.getDisplayName(), "phase", start, end));
+            }
+        }
+    }
+
+    public void detectorFinished(String detector, long start) {
+        if (this.enabled) {
+            this.detectorStats.computeIfAbsent(detector, d -> new Stats()).add(System.nanoTime() - start);
+        }
+    }
+
+    public void fileFinished(String filePath, long start) {
+        if (this.enabled) {
+            long end = System.nanoTime();
+            this.fileStats.computeIfAbsent(filePath, f -> new Stats()).add(end - start);
+            this.traceEvents.add(new TraceEvent(filePath, "file", start, end));
+        }
+    }
+
+    /**
+     * Plain text summary of the time spent per phase and per detector, and of the slowest files.
+     */
+    public String getReport(int maxFiles) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Phases:\n");
+        for (Phase phase : Phase.values()) {
+            Stats stats = this.phaseStats.get(phase);
+            if (stats != null) {
+                appendStats(sb, phase.getDisplayName(), stats);
+            }
+        }
+        sb.append("Detectors:\n");
+        for (Map.Entry<String, Stats> entry : getSlowest(this.detectorStats, Integer.MAX_VALUE)) {
+            appendStats(sb, entry.getKey(), entry.getValue());
+        }
+        sb.append("Slowest files:\n");
+        for (Map.Entry<String, Stats> entry : getSlowest(this.fileStats, maxFiles)) {
+            appendStats(sb, entry.getKey(), entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    public List<Map.Entry<String, Long>> getSlowestDetectors() {
+        return getTotals(getSlowest(this.detectorStats, Integer.MAX_VALUE));
+    }
+
+    public List<Map.Entry<String, Long>> getSlowestFiles(int maxFiles) {
+        return getTotals(getSlowest(this.fileStats, maxFiles));
+    }
+
+    /**
+     * Writes the recorded timeline as a Chrome trace event file, with one track per scanner thread.
+     */
+    public void writeTrace(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("displayTimeUnit").value("ms");
+        json.name("traceEvents").beginArray();
+        for (TraceEvent event : this.traceEvents) {
+            json.beginObject();
+            json.name("name").value(event.name);
+            json.name("cat").value(event.category);
+            json.name("ph").value("X");
+            json.name("ts").value(TimeUnit.NANOSECONDS.toMicros(event.start - this.origin));
+            json.name("dur").value(TimeUnit.NANOSECONDS.toMicros(event.end - event.start));
+            json.name("pid").value(1);
+            json.name("tid").value(event.threadId);
+            json.endObject();
+        }
+        for (Map.Entry<Long, String> thread : getThreadNames().entrySet()) {
+            json.beginObject();
+            json.name("name").value("thread_name");
+            json.name("ph").value("M");
+            json.name("pid").value(1);
+            json.name("tid").value(thread.getKey());
+            json.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private Map<Long, String> getThreadNames() {
+        Map<Long, String> threadNames = new TreeMap<>();
+        for (TraceEvent event : this.traceEvents) {
+            threadNames.put(event.threadId, event.threadName);
+        }
+        return threadNames;
+    }
+
+    private static List<Map.Entry<String, Stats>> getSlowest(Map<String, Stats> stats, int limit) {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().totalNanos.get(), a.getValue().totalNanos.get()));
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    private static List<Map.Entry<String, Long>> getTotals(List<Map.Entry<String, Stats>> entries) {
+        List<Map.Entry<String, Long>> totals = new ArrayList<>();
+        for (Map.Entry<String, Stats> entry : entries) {
+            totals.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().getTotalMillis()));
+        }
+        return totals;
+    }
+
+    private static void appendStats(StringBuilder sb, String name, Stats stats) {
+        sb.append("  ");
+        sb.append(name);
+        sb.append(": ");
+        sb.append(stats.getTotalMillis());
+        sb.append(" ms in ");
+        sb.append(stats.calls.get());
+        sb.append(" call(s)\n");
+    }
+
+    private static class Stats {
+
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+
+        private void add(long nanos) {
+            this.totalNanos.addAndGet(nanos);
+            this.calls.incrementAndGet();
+        }
+
+        private long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.totalNanos.get());
+        }
+
+    }
+
+    private static class TraceEvent {
+
+        private final String name;
+        private final String category;
+        private final long start;
+        private final long end;
+        private final long threadId;
+        private final String threadName;
+
+        private TraceEvent(String name, String category, long start, long end) {
+            this.name = name;
+            this.category = category;
+            this.start = start;
+            this.end = end;
+            Thread thread = Thread.currentThread();
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+        }
+
+    }
+
+}
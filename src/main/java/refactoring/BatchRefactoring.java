@@ -0,0 +1,192 @@
+package refactoring;
+
+import codesmell.CodeSmell;
+import codesmell.CodeSmellPointer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import utils.Constants;
+import utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies the refactorings of many code smells at once. The replacements are prepared up front as plain text edits
+ * grouped by file, see {@link FileRefactoring}, so that applying them is a short write action: each file is edited
+ * from the bottom up, its document is committed once, and the whole batch is a single undoable command.
+ */
+public class BatchRefactoring {
+
+    private static final Logger LOG = Logger.getInstance(BatchRefactoring.class);
+    private static final String COMMAND_NAME = "Refactor Code Smells";
+
+    private final Project project;
+    private final List<FileRefactoring> fileRefactorings;
+
+    private BatchRefactoring(Project project, List<FileRefactoring> fileRefactorings) {
+        this.project = project;
+        this.fileRefactorings = fileRefactorings;
+    }
+
+    /**
+     * Prepares the edits on the calling thread. Must be called inside a read action, with the documents of the
+     * affected files committed.
+     */
+    public static BatchRefactoring prepare(Project project, Collection<? extends CodeSmell> codeSmells) {
+        List<FileRefactoring> fileRefactorings = new ArrayList<>();
+        for (List<CodeSmell> fileCodeSmells : groupByFile(codeSmells).values()) {
+            FileRefactoring fileRefactoring = prepareFile(project, fileCodeSmells);
+            if (fileRefactoring != null) {
+                fileRefactorings.add(fileRefactoring);
+            }
+        }
+        return new BatchRefactoring(project, fileRefactorings);
+    }
+
+    /**
+     * Prepares the edits of each file concurrently, in short read actions that give way to write actions. The code
+     * smells of a file are only resolved back to PSI while its edits are being prepared.
+     * Must be called outside of any read action, with the documents of the affected files committed.
+     *
+     * @throws ProcessCanceledException if the indicator is cancelled before every file has been prepared
+     */
+    public static BatchRefactoring prepareInParallel(Project project, Collection<CodeSmellPointer> codeSmells,
+                                                     int parallelism, ProgressIndicator indicator) {
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                Constants.REFACTORING_POOL_NAME, Math.max(1, parallelism));
+        Map<String, List<CodeSmellPointer>> codeSmellsByFile = new LinkedHashMap<>();
+        for (CodeSmellPointer codeSmell : codeSmells) {
+            codeSmellsByFile.computeIfAbsent(codeSmell.getFingerprint().getFilePath(), f -> new ArrayList<>()).add(codeSmell);
+        }
+        AtomicInteger preparedFiles = new AtomicInteger();
+        indicator.setIndeterminate(false);
+
+        List<Future<FileRefactoring>> results = new ArrayList<>();
+        for (List<CodeSmellPointer> fileCodeSmells : codeSmellsByFile.values()) {
+            results.add(executor.submit(() -> {
+                indicator.checkCanceled();
+                FileRefactoring fileRefactoring = Utils.computeInReadActionWithWriteActionPriority(
+                        () -> prepareFile(project, resolve(fileCodeSmells)), indicator);
+                indicator.setFraction((double) preparedFiles.incrementAndGet() / codeSmellsByFile.size());
+                return fileRefactoring;
+            }));
+        }
+
+        List<FileRefactoring> fileRefactorings = new ArrayList<>();
+        for (Future<FileRefactoring> result : results) {
+            try {
+                FileRefactoring fileRefactoring = result.get();
+                if (fileRefactoring != null) {
+                    fileRefactorings.add(fileRefactoring);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(results);
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ProcessCanceledException) {
+                    cancelAll(results);
+                    throw (ProcessCanceledException) e.getCause();
+                }
+                LOG.error("Preparing the refactorings of a file failed", e.getCause());
+            }
+        }
+        indicator.checkCanceled();
+        return new BatchRefactoring(project, fileRefactorings);
+    }
+
+    /**
+     * Applies the edits of every prepared file.
+     */
+    public int apply() {
+        return apply(this.fileRefactorings);
+    }
+
+    /**
+     * Applies the edits of the given files as one command. Files changed since the edits were prepared are left
+     * untouched. Must be called on the EDT.
+     *
+     * @return the number of files that were refactored
+     */
+    public int apply(Collection<FileRefactoring> selectedFiles) {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        int[] refactoredFiles = {0};
+        List<PsiFile> files = new ArrayList<>();
+        for (FileRefactoring fileRefactoring : selectedFiles) {
+            files.add(fileRefactoring.getFile());
+        }
+        WriteCommandAction.runWriteCommandAction(this.project, COMMAND_NAME, null, () -> {
+            for (FileRefactoring fileRefactoring : selectedFiles) {
+                if (fileRefactoring.isUpToDate()) {
+                    fileRefactoring.apply();
+                    refactoredFiles[0]++;
+                }
+            }
+        }, files.toArray(PsiFile.EMPTY_ARRAY));
+        return refactoredFiles[0];
+    }
+
+    public List<FileRefactoring> getFileRefactorings() {
+        return this.fileRefactorings;
+    }
+
+    /**
+     * @return the number of replacements left out because they overlap another replacement
+     */
+    public int getSkippedEdits() {
+        int skippedEdits = 0;
+        for (FileRefactoring fileRefactoring : this.fileRefactorings) {
+            skippedEdits += fileRefactoring.getSkippedEdits();
+        }
+        return skippedEdits;
+    }
+
+    private static Map<String, List<CodeSmell>> groupByFile(Collection<? extends CodeSmell> codeSmells) {
+        // The fingerprint already names the file, so grouping needs no read action
+        Map<String, List<CodeSmell>> codeSmellsByFile = new LinkedHashMap<>();
+        for (CodeSmell codeSmell : codeSmells) {
+            codeSmellsByFile.computeIfAbsent(codeSmell.getFingerprint().getFilePath(), f -> new ArrayList<>()).add(codeSmell);
+        }
+        return codeSmellsByFile;
+    }
+
+    private static List<CodeSmell> resolve(List<CodeSmellPointer> codeSmells) {
+        List<CodeSmell> resolved = new ArrayList<>(codeSmells.size());
+        for (CodeSmellPointer codeSmell : codeSmells) {
+            CodeSmell resolvedCodeSmell = codeSmell.resolve();
+            if (resolvedCodeSmell != null) {
+                resolved.add(resolvedCodeSmell);
+            }
+        }
+        return resolved;
+    }
+
+    private static FileRefactoring prepareFile(Project project, List<CodeSmell> codeSmells) {
+        if (project.isDisposed()) {
+            return null;
+        }
+        for (CodeSmell codeSmell : codeSmells) {
+            if (codeSmell.isValid()) {
+                PsiFile psiFile = codeSmell.getNavigationElement().getContainingFile();
+                return psiFile == null ? null : FileRefactoring.prepare(psiFile, codeSmells);
+            }
+        }
+        return null;
+    }
+
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package refactoring;
+
+import codesmell.CodeSmell;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.*;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.*;
+
+/**
+ * The text edits that refactor the code smells of a single file, together with a snapshot of the text they were
+ * prepared against. Holds no PSI other than the file, so it can be prepared in the background and applied later.
+ */
+public class FileRefactoring {
+
+    private final PsiFile psiFile;
+    private final Document document;
+    private final long modificationStamp;
+    private final CharSequence originalText;
+    // Sorted by offset and not overlapping
+    private final List<TextEdit> edits;
+    private final int skippedEdits;
+
+    private FileRefactoring(PsiFile psiFile, Document document, List<TextEdit> edits, int skippedEdits) {
+        this.psiFile = psiFile;
+        this.document = document;
+        this.modificationStamp = document.getModificationStamp();
+        this.originalText = document.getImmutableCharSequence();
+        this.edits = edits;
+        this.skippedEdits = skippedEdits;
+    }
+
+    /**
+     * Must be called inside a read action, with the document of the file committed.
+     *
+     * @return the refactoring of the file, or null if none of the code smells can be refactored any more
+     */
+    public static FileRefactoring prepare(PsiFile psiFile, Collection<? extends CodeSmell> codeSmells) {
+        Document document = PsiDocumentManager.getInstance(psiFile.getProject()).getDocument(psiFile);
+        if (document == null || !psiFile.isValid()) {
+            return null;
+        }
+        List<TextEdit> edits = new ArrayList<>();
+        for (CodeSmell codeSmell : codeSmells) {
+            if (!codeSmell.isValid()) {
+                continue;
+            }
+            for (Map.Entry<PsiElement, String> entry : codeSmell.getMappingFromPsiElementToRefactoring().entrySet()) {
+                PsiElement element = entry.getKey();
+                String newText = entry.getValue();
+                if (newText != null && element.isValid() && psiFile.equals(element.getContainingFile())) {
+                    edits.add(new TextEdit(element.getTextRange(), withDroppedComments(element, newText)));
+                }
+            }
+        }
+        List<TextEdit> applicableEdits = removeOverlappingEdits(edits);
+        if (applicableEdits.isEmpty()) {
+            return null;
+        }
+        return new FileRefactoring(psiFile, document, applicableEdits, edits.size() - applicableEdits.size());
+    }
+
+    public PsiFile getFile() {
+        return this.psiFile;
+    }
+
+    public CharSequence getOriginalText() {
+        return this.originalText;
+    }
+
+    /**
+     * @return the text of the file with every edit applied, before the edited code is reformatted
+     */
+    public String getRefactoredText() {
+        StringBuilder sb = new StringBuilder(this.originalText);
+        for (int i = this.edits.size() - 1; i >= 0; i--) {
+            TextEdit edit = this.edits.get(i);
+            sb.replace(edit.range.getStartOffset(), edit.range.getEndOffset(), edit.newText);
+        }
+        return sb.toString();
+    }
+
+    public int getEditCount() {
+        return this.edits.size();
+    }
+
+    /**
+     * @return the number of replacements left out because they overlap another replacement
+     */
+    public int getSkippedEdits() {
+        return this.skippedEdits;
+    }
+
+    /**
+     * @return whether the file is unchanged since the edits were prepared
+     */
+    public boolean isUpToDate() {
+        return this.psiFile.isValid() && this.document.getModificationStamp() == this.modificationStamp;
+    }
+
+    /**
+     * Must be called inside a write action on the EDT.
+     */
+    void apply() {
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(this.psiFile.getProject());
+        documentManager.doPostponedOperationsAndUnblockDocument(this.document);
+        List<RangeMarker> editedRanges = new ArrayList<>();
+        // Bottom up, so every edit still finds the text it was prepared for
+        for (int i = this.edits.size() - 1; i >= 0; i--) {
+            TextEdit edit = this.edits.get(i);
+            this.document.replaceString(edit.range.getStartOffset(), edit.range.getEndOffset(), edit.newText);
+            editedRanges.add(this.document.createRangeMarker(edit.range.getStartOffset(),
+                    edit.range.getStartOffset() + edit.newText.length()));
+        }
+        documentManager.commitDocument(this.document);
+
+        List<TextRange> ranges = new ArrayList<>();
+        for (RangeMarker marker : editedRanges) {
+            if (marker.isValid()) {
+                ranges.add(new TextRange(marker.getStartOffset(), marker.getEndOffset()));
+            }
+            marker.dispose();
+        }
+        // The replacements are assembled from fragments of the old code, so they are laid out as one batch per file
+        CodeStyleManager.getInstance(this.psiFile.getProject()).reformatText(this.psiFile, ranges);
+    }
+
+    private static List<TextEdit> removeOverlappingEdits(List<TextEdit> edits) {
+        // Keep the outermost of nested replacements, e.g. the outer one of two nested Slow Loops. Its text was built
+        // from the original inner code, and the inner one can be fixed by running the refactoring again
+        edits.sort(Comparator.comparingInt((TextEdit edit) -> edit.range.getStartOffset())
+                .thenComparing(Comparator.comparingInt((TextEdit edit) -> edit.range.getEndOffset()).reversed()));
+        List<TextEdit> result = new ArrayList<>(edits.size());
+        int lastEnd = -1;
+        for (TextEdit edit : edits) {
+            if (edit.range.getStartOffset() >= lastEnd) {
+                result.add(edit);
+                lastEnd = edit.range.getEndOffset();
+            }
+        }
+        return result;
+    }
+
+    private static String withDroppedComments(PsiElement element, String newText) {
+        // As CommentTracker does for PSI replacements, keep the comments that the new code no longer contains
+        StringBuilder sb = new StringBuilder();
+        for (PsiComment comment : PsiTreeUtil.findChildrenOfType(element, PsiComment.class)) {
+            String commentText = comment.getText();
+            if (!newText.contains(commentText)) {
+                sb.append(commentText);
+                sb.append('\n');
+            }
+        }
+        if (sb.length() == 0) {
+            return newText;
+        }
+        sb.append(newText);
+        return sb.toString();
+    }
+
+    private static class TextEdit {
+
+        private final TextRange range;
+        private final String newText;
+
+        private TextEdit(TextRange range, String newText) {
+            this.range = range;
+            this.newText = newText;
+        }
+
+    }
+
+}
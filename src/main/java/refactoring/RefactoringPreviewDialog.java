@@ -0,0 +1,91 @@
+package refactoring;
+
+import com.intellij.diff.DiffContentFactory;
+import com.intellij.diff.DiffManager;
+import com.intellij.diff.DiffRequestPanel;
+import com.intellij.diff.requests.SimpleDiffRequest;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.CheckBoxList;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the prepared edits of every file as a diff against the current text, and lets the user pick the files that
+ * should be refactored.
+ */
+public class RefactoringPreviewDialog extends DialogWrapper {
+
+    private final Project project;
+    private final List<FileRefactoring> fileRefactorings;
+    private final CheckBoxList<FileRefactoring> fileList = new CheckBoxList<>();
+    private DiffRequestPanel diffPanel;
+
+    public RefactoringPreviewDialog(Project project, List<FileRefactoring> fileRefactorings) {
+        super(project, true);
+        this.project = project;
+        this.fileRefactorings = fileRefactorings;
+        setTitle("Refactor Code Smells");
+        setOKButtonText("Refactor");
+        init();
+    }
+
+    @Nullable
+    @Override
+    protected JComponent createCenterPanel() {
+        for (FileRefactoring fileRefactoring : this.fileRefactorings) {
+            this.fileList.addItem(fileRefactoring, getLabel(fileRefactoring), true);
+        }
+        this.diffPanel = DiffManager.getInstance().createRequestPanel(this.project, getDisposable(), null);
+        this.fileList.addListSelectionListener(e -> showDiff(this.fileList.getSelectedIndex()));
+        this.fileList.setSelectedIndex(0);
+        showDiff(0);
+
+        JBSplitter splitter = new JBSplitter(false, 0.3f);
+        splitter.setFirstComponent(ScrollPaneFactory.createScrollPane(this.fileList));
+        splitter.setSecondComponent(this.diffPanel.getComponent());
+        splitter.setPreferredSize(JBUI.size(1000, 600));
+        return splitter;
+    }
+
+    /**
+     * @return the files whose edits the user accepted
+     */
+    public List<FileRefactoring> getSelectedFileRefactorings() {
+        List<FileRefactoring> selected = new ArrayList<>();
+        for (FileRefactoring fileRefactoring : this.fileRefactorings) {
+            if (this.fileList.isItemSelected(fileRefactoring)) {
+                selected.add(fileRefactoring);
+            }
+        }
+        return selected;
+    }
+
+    private void showDiff(int index) {
+        if (index < 0 || index >= this.fileRefactorings.size()) {
+            return;
+        }
+        FileRefactoring fileRefactoring = this.fileRefactorings.get(index);
+        DiffContentFactory contentFactory = DiffContentFactory.getInstance();
+        this.diffPanel.setRequest(new SimpleDiffRequest(fileRefactoring.getFile().getName(),
+                contentFactory.create(this.project, fileRefactoring.getOriginalText().toString(), fileRefactoring.getFile().getFileType()),
+                contentFactory.create(this.project, fileRefactoring.getRefactoredText(), fileRefactoring.getFile().getFileType()),
+                "Current", "Refactored (before reformatting)"));
+    }
+
+    private static String getLabel(FileRefactoring fileRefactoring) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(fileRefactoring.getFile().getName());
+        sb.append(" (");
+        sb.append(fileRefactoring.getEditCount());
+        sb.append(fileRefactoring.getEditCount() == 1 ? " change)" : " changes)");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,140 @@
+package scan;
+
+import codesmell.CodeSmell;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import detection.FileAnalysisContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import profiling.ScanProfiler;
+import visitors.SourceCodeVisitor;
+
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Project-wide store of the code smells identified in each file, shared by the inspection and the batch action.
+ * An entry is only handed out while the file's PSI modification stamp matches the one it was computed for.
+ * Entries are softly reachable: the code smells reference the syntax trees of their files, which the IDE must be
+ * able to unload after a scan of a large project.
+ */
+public class CodeSmellCache {
+
+    private final ConcurrentMap<VirtualFile, CachedCodeSmells> cachedCodeSmells = new ConcurrentHashMap<>();
+
+    public CodeSmellCache(Project project) {
+        // Drop entries eagerly as files change so stale PSI is not kept reachable until the next lookup
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+                invalidate(event.getFile());
+            }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+                if (event.getChild() instanceof PsiFile) {
+                    invalidate((PsiFile) event.getChild());
+                }
+            }
+        }, project);
+    }
+
+    public static CodeSmellCache getInstance(Project project) {
+        return ServiceManager.getService(project, CodeSmellCache.class);
+    }
+
+    /**
+     * Returns the code smells of the given file, running the detectors only if nothing up to date is cached.
+     * Must be called inside a read action.
+     */
+    @NotNull
+    public Set<CodeSmell> getCodeSmells(@NotNull PsiFile psiFile) {
+        return getCodeSmells(psiFile, ScanProfiler.DISABLED);
+    }
+
+    @NotNull
+    public Set<CodeSmell> getCodeSmells(@NotNull PsiFile psiFile, @NotNull ScanProfiler profiler) {
+        Set<CodeSmell> codeSmells = getCachedCodeSmells(psiFile);
+        if (codeSmells != null) {
+            return codeSmells;
+        }
+        if (profiler.isEnabled()) {
+            // Load the tree up front so parsing is not counted as detection time
+            long start = profiler.start();
+            psiFile.getNode();
+            profiler.phaseFinished(ScanProfiler.Phase.LOAD_PSI, start);
+        }
+        long start = profiler.start();
+        FileAnalysisContext context = new FileAnalysisContext(psiFile, profiler);
+        SourceCodeVisitor sourceCodeVisitor = new SourceCodeVisitor(context, profiler);
+        psiFile.accept(sourceCodeVisitor);
+        context.analysisFinished();
+        profiler.phaseFinished(ScanProfiler.Phase.DETECT, start);
+        codeSmells = Collections.unmodifiableSet(sourceCodeVisitor.getIdentifiedCodeSmells());
+        putCodeSmells(psiFile, codeSmells);
+        return codeSmells;
+    }
+
+    @Nullable
+    public Set<CodeSmell> getCachedCodeSmells(@NotNull PsiFile psiFile) {
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if (virtualFile == null) {
+            return null;
+        }
+        CachedCodeSmells cached = this.cachedCodeSmells.get(virtualFile);
+        if (cached == null) {
+            return null;
+        }
+        Set<CodeSmell> codeSmells = cached.codeSmells.get();
+        if (codeSmells == null || cached.modificationStamp != psiFile.getModificationStamp() || !isValid(codeSmells)) {
+            this.cachedCodeSmells.remove(virtualFile, cached);
+            return null;
+        }
+        return codeSmells;
+    }
+
+    public void putCodeSmells(@NotNull PsiFile psiFile, @NotNull Set<CodeSmell> codeSmells) {
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if (virtualFile != null) {
+            this.cachedCodeSmells.put(virtualFile, new CachedCodeSmells(psiFile.getModificationStamp(), codeSmells));
+        }
+    }
+
+    public void invalidate(@Nullable PsiFile psiFile) {
+        if (psiFile != null && psiFile.getVirtualFile() != null) {
+            this.cachedCodeSmells.remove(psiFile.getVirtualFile());
+        }
+    }
+
+    public void clear() {
+        this.cachedCodeSmells.clear();
+    }
+
+    private static boolean isValid(Set<CodeSmell> codeSmells) {
+        // The AST backing the smells can be unloaded and reparsed without the file changing
+        for (CodeSmell codeSmell : codeSmells) {
+            if (!codeSmell.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class CachedCodeSmells {
+
+        private final long modificationStamp;
+        private final SoftReference<Set<CodeSmell>> codeSmells;
+
+        private CachedCodeSmells(long modificationStamp, Set<CodeSmell> codeSmells) {
+            this.modificationStamp = modificationStamp;
+            this.codeSmells = new SoftReference<>(codeSmells);
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package scan;
+
+import codesmell.CodeSmell;
+import com.intellij.psi.PsiFile;
+
+import java.util.Set;
+
+/**
+ * Receives the code smells of each file as soon as the scanner has analyzed it. Called from the scanner's worker
+ * threads outside of any read action, so implementations must be thread-safe and take their own read actions.
+ * The scanner drops the file once the listener returns, so whatever the listener keeps decides what stays in memory.
+ */
+@FunctionalInterface
+public interface CodeSmellScanListener {
+
+    CodeSmellScanListener NONE = (psiFile, codeSmells) -> {};
+
+    void codeSmellsFound(PsiFile psiFile, Set<CodeSmell> codeSmells);
+
+}
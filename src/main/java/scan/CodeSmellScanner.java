@@ -0,0 +1,238 @@
+package scan;
+
+import baseline.BaselineManager;
+import baseline.CodeSmellBaseline;
+import codesmell.CodeSmell;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import detection.CodeSmellDetector;
+import detection.CodeSmellDetectors;
+import profiling.ScanProfiler;
+import settings.CodeSmellSettings;
+import utils.Constants;
+import utils.Utils;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a stream of files into work units and analyzes them concurrently on a bounded worker pool.
+ * The detectors are stateless (every check creates its own visitors), so each worker only needs its own
+ * read action to run them safely alongside the others.
+ */
+public class CodeSmellScanner {
+
+    private static final Logger LOG = Logger.getInstance(CodeSmellScanner.class);
+
+    private final Project project;
+    private final int parallelism;
+    private final ScanProfiler profiler;
+    private final CodeSmellBaseline baseline;
+
+    public CodeSmellScanner(Project project) {
+        this(project, CodeSmellSettings.getInstance().getScanParallelism());
+    }
+
+    public CodeSmellScanner(Project project, int parallelism) {
+        this(project, parallelism, ScanProfiler.DISABLED);
+    }
+
+    public CodeSmellScanner(Project project, int parallelism, ScanProfiler profiler) {
+        this(project, parallelism, profiler, BaselineManager.getInstance(project).getBaseline());
+    }
+
+    /**
+     * @param baseline the accepted code smells, which are left out of the results
+     */
+    public CodeSmellScanner(Project project, int parallelism, ScanProfiler profiler, CodeSmellBaseline baseline) {
+        this.project = project;
+        this.parallelism = Math.max(1, parallelism);
+        this.profiler = profiler;
+        this.baseline = baseline;
+    }
+
+    /**
+     * Analyzes the files and returns the code smells of all of them. Keeps every affected file's PSI reachable, so
+     * large scans should publish their results through a {@link CodeSmellScanListener} instead.
+     */
+    public Map<PsiFile, Set<CodeSmell>> scan(Collection<VirtualFile> files) {
+        Map<PsiFile, Set<CodeSmell>> identifiedCodeSmells = Collections.synchronizedMap(new LinkedHashMap<>());
+        scan(files, new EmptyProgressIndicator(), identifiedCodeSmells::put);
+        return identifiedCodeSmells;
+    }
+
+    public void scan(Collection<VirtualFile> files, ProgressIndicator indicator, CodeSmellScanListener listener) {
+        scan(files.iterator(), files.size(), indicator, listener);
+    }
+
+    /**
+     * Analyzes the files, reporting the files processed so far on the indicator and publishing the code smells of each
+     * file to the listener as soon as that file is done. The scanner keeps nothing once a file has been published,
+     * and only takes further files from the iterator as work units complete, so the PSI reachable at any time is
+     * bounded by the number of work units in flight rather than by the size of the project.
+     *
+     * @param fileCount the number of files the iterator yields, for progress reporting
+     * @throws ProcessCanceledException if the indicator is cancelled before every file has been analyzed
+     */
+    public void scan(Iterator<VirtualFile> files, int fileCount, ProgressIndicator indicator, CodeSmellScanListener listener) {
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                Constants.SCANNER_POOL_NAME, this.parallelism);
+        int maxPendingWorkUnits = this.parallelism * Constants.SCAN_PENDING_WORK_UNITS_PER_THREAD;
+
+        indicator.setIndeterminate(false);
+        ScanProgress progress = new ScanProgress(indicator, fileCount);
+        Deque<Future<?>> pendingWorkUnits = new ArrayDeque<>();
+        try {
+            while (files.hasNext()) {
+                indicator.checkCanceled();
+                List<VirtualFile> workUnit = nextWorkUnit(files);
+                // Wait for the oldest work unit before queueing more, keeping every worker busy without reading ahead
+                if (pendingWorkUnits.size() >= maxPendingWorkUnits) {
+                    awaitWorkUnit(pendingWorkUnits.poll());
+                }
+                pendingWorkUnits.add(executor.submit(() -> analyzeWorkUnit(workUnit, progress, listener)));
+            }
+            while (!pendingWorkUnits.isEmpty()) {
+                awaitWorkUnit(pendingWorkUnits.poll());
+            }
+        } catch (ProcessCanceledException e) {
+            cancelAll(pendingWorkUnits);
+            throw e;
+        }
+        indicator.checkCanceled();
+    }
+
+    private static void awaitWorkUnit(Future<?> workUnit) {
+        try {
+            workUnit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ProcessCanceledException) {
+                throw (ProcessCanceledException) e.getCause();
+            }
+            LOG.error("Code smell analysis failed for a work unit", e.getCause());
+        }
+    }
+
+    private static List<VirtualFile> nextWorkUnit(Iterator<VirtualFile> files) {
+        List<VirtualFile> workUnit = new ArrayList<>(Constants.SCAN_WORK_UNIT_SIZE);
+        while (files.hasNext() && workUnit.size() < Constants.SCAN_WORK_UNIT_SIZE) {
+            workUnit.add(files.next());
+        }
+        return workUnit;
+    }
+
+    private void analyzeWorkUnit(List<VirtualFile> workUnit, ScanProgress progress, CodeSmellScanListener listener) {
+        // Only the files of the work unit are looked up, so small scans never pay for a search of the whole project
+        long start = this.profiler.start();
+        CandidateFiles candidateFiles = Utils.computeInReadActionWithWriteActionPriority(
+                () -> CandidateFiles.find(this.project, workUnit), progress.indicator);
+        this.profiler.phaseFinished(ScanProfiler.Phase.COLLECT_FILES, start);
+        for (VirtualFile virtualFile : workUnit) {
+            progress.indicator.checkCanceled();
+            // Each file gets its own short read action that yields to pending writes, so typing or saving
+            // never waits for more than a single file's analysis
+            Pair<PsiFile, Set<CodeSmell>> result = Utils.computeInReadActionWithWriteActionPriority(
+                    () -> analyzeFile(virtualFile, candidateFiles), progress.indicator);
+            if (result != null && !result.second.isEmpty()) {
+                long reportStart = this.profiler.start();
+                listener.codeSmellsFound(result.first, result.second);
+                this.profiler.phaseFinished(ScanProfiler.Phase.REPORT, reportStart);
+            }
+            progress.fileProcessed();
+        }
+    }
+
+    private Pair<PsiFile, Set<CodeSmell>> analyzeFile(VirtualFile virtualFile, CandidateFiles candidateFiles) {
+        if (this.project.isDisposed() || !virtualFile.isValid()) {
+            return null;
+        }
+        // Most files can be ruled out from the indexes, without ever being parsed
+        if (!candidateFiles.mayContainCodeSmells(virtualFile)) {
+            return null;
+        }
+        long start = this.profiler.start();
+        PsiFile psiFile = PsiManager.getInstance(this.project).findFile(virtualFile);
+        if (psiFile == null) {
+            return null;
+        }
+        // Files left untouched since the last scan or highlighting pass are served from the cache
+        Set<CodeSmell> codeSmells = CodeSmellCache.getInstance(this.project).getCodeSmells(psiFile, this.profiler);
+        codeSmells = this.baseline.filterNew(codeSmells);
+        this.profiler.fileFinished(virtualFile.getPath(), start);
+        return Pair.create(psiFile, codeSmells);
+    }
+
+    private static void cancelAll(Collection<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    private static class ScanProgress {
+
+        private final ProgressIndicator indicator;
+        private final int totalFiles;
+        private final AtomicInteger processedFiles = new AtomicInteger();
+
+        private ScanProgress(ProgressIndicator indicator, int totalFiles) {
+            this.indicator = indicator;
+            this.totalFiles = totalFiles;
+        }
+
+        private void fileProcessed() {
+            int processed = this.processedFiles.incrementAndGet();
+            this.indicator.setFraction(this.totalFiles == 0 ? 1.0 : (double) processed / this.totalFiles);
+            this.indicator.setText2(processed + " of " + this.totalFiles + " files processed");
+        }
+
+    }
+
+    /**
+     * The files of a work unit that may contain a code smell, according to the
+     * {@link CodeSmellDetector#getCandidateFiles} of every registered detector.
+     */
+    private static class CandidateFiles {
+
+        // Null if every file has to be analyzed, e.g. while indexing
+        private final Set<VirtualFile> files;
+        private final GlobalSearchScope scope;
+
+        private CandidateFiles(Set<VirtualFile> files, GlobalSearchScope scope) {
+            this.files = files;
+            this.scope = scope;
+        }
+
+        private static CandidateFiles find(Project project, List<VirtualFile> workUnit) {
+            List<VirtualFile> validFiles = new ArrayList<>(workUnit.size());
+            for (VirtualFile virtualFile : workUnit) {
+                if (virtualFile.isValid()) {
+                    validFiles.add(virtualFile);
+                }
+            }
+            return new CandidateFiles(CodeSmellDetectors.getCandidateFiles(project, validFiles),
+                    GlobalSearchScope.projectScope(project));
+        }
+
+        private boolean mayContainCodeSmells(VirtualFile virtualFile) {
+            // Files outside the project are not covered by the indexes
+            return this.files == null || this.files.contains(virtualFile) || !this.scope.contains(virtualFile);
+        }
+
+    }
+
+}
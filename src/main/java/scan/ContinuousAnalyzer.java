@@ -0,0 +1,161 @@
+package scan;
+
+import codesmell.CodeSmellPointer;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.intellij.util.Alarm;
+import org.jetbrains.annotations.NotNull;
+import scope.ScanScope;
+import settings.CodeSmellSettings;
+import toolwindow.CodeSmellResultsView;
+import utils.Constants;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the results tool window current while continuous analysis is enabled, reanalyzing files in the background
+ * as they are saved or changed on disk. Changes are merged until none has arrived for a short delay, so a branch
+ * switch or a large refactoring results in a single analysis, and only one analysis runs at a time on a few threads.
+ */
+public class ContinuousAnalyzer implements Disposable {
+
+    private final Project project;
+    private final Set<VirtualFile> pendingFiles = ConcurrentHashMap.newKeySet();
+    private final Alarm alarm;
+    private final AtomicBoolean isAnalyzing = new AtomicBoolean();
+    private final ProgressIndicator indicator = new EmptyProgressIndicator();
+
+    public ContinuousAnalyzer(Project project) {
+        this.project = project;
+        this.alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    }
+
+    public static ContinuousAnalyzer getInstance(Project project) {
+        return ServiceManager.getService(project, ContinuousAnalyzer.class);
+    }
+
+    private void start() {
+        this.project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                if (!CodeSmellSettings.getInstance().isContinuousAnalysis()) {
+                    return;
+                }
+                CodeSmellResultsView resultsView = CodeSmellResultsView.getInstance(ContinuousAnalyzer.this.project);
+                for (VFileEvent event : events) {
+                    // Files that disappear from where they are listed, the new location is picked up afterwards
+                    if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent
+                            || event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                        resultsView.removeCodeSmells(event.getFile());
+                    }
+                }
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                if (!CodeSmellSettings.getInstance().isContinuousAnalysis()) {
+                    return;
+                }
+                // Runs inside the write action, so only a cheap filter is applied here. Whether the files belong
+                // to the project is checked in the background
+                List<VirtualFile> changedFiles = new ArrayList<>();
+                FileTypeRegistry fileTypeRegistry = FileTypeRegistry.getInstance();
+                for (VFileEvent event : events) {
+                    VirtualFile file = event.getFile();
+                    if (event instanceof VFileDeleteEvent || file == null || !file.isValid()) {
+                        continue;
+                    }
+                    if (file.isDirectory() || fileTypeRegistry.isFileOfType(file, JavaFileType.INSTANCE)) {
+                        changedFiles.add(file);
+                    }
+                }
+                if (!changedFiles.isEmpty()) {
+                    schedule(changedFiles);
+                }
+            }
+        });
+    }
+
+    private void schedule(Collection<VirtualFile> files) {
+        this.pendingFiles.addAll(files);
+        // Every change restarts the delay, which merges a burst of changes into a single analysis
+        this.alarm.cancelAllRequests();
+        this.alarm.addRequest(this::analyzePendingFiles, Constants.CONTINUOUS_ANALYSIS_DELAY_MS);
+    }
+
+    private void analyzePendingFiles() {
+        if (this.project.isDisposed() || this.pendingFiles.isEmpty()) {
+            return;
+        }
+        if (DumbService.isDumb(this.project)) {
+            // Resolving needs the indexes, e.g. after a branch switch
+            DumbService.getInstance(this.project).runWhenSmart(() -> schedule(Collections.emptyList()));
+            return;
+        }
+        // A running analysis picks up the files that arrived in the meantime when it finishes
+        if (!this.isAnalyzing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<VirtualFile> files = new ArrayList<>(this.pendingFiles);
+            this.pendingFiles.removeAll(files);
+            analyze(files);
+        } catch (ProcessCanceledException e) {
+            // The project is being closed
+        } finally {
+            this.isAnalyzing.set(false);
+            if (!this.pendingFiles.isEmpty() && !this.project.isDisposed()) {
+                schedule(Collections.emptyList());
+            }
+        }
+    }
+
+    private void analyze(List<VirtualFile> changedFiles) {
+        Collection<VirtualFile> files = ScanScope.files("changed files", changedFiles).collectFiles(this.project, this.indicator);
+        CodeSmellResultsView resultsView = CodeSmellResultsView.getInstance(this.project);
+        Set<VirtualFile> filesWithoutCodeSmells = ConcurrentHashMap.newKeySet();
+        filesWithoutCodeSmells.addAll(files);
+        int parallelism = Math.min(CodeSmellSettings.getInstance().getScanParallelism(),
+                Constants.CONTINUOUS_ANALYSIS_MAX_THREADS);
+        new CodeSmellScanner(this.project, parallelism).scan(files, this.indicator, (psiFile, codeSmells) -> {
+            List<CodeSmellPointer> pointers = ReadAction.compute(() -> CodeSmellPointer.createAll(codeSmells));
+            resultsView.replaceCodeSmells(psiFile.getVirtualFile(), pointers);
+            filesWithoutCodeSmells.remove(psiFile.getVirtualFile());
+        });
+        // The scanner only reports files with code smells, so clear the files whose code smells have all been fixed
+        for (VirtualFile file : filesWithoutCodeSmells) {
+            resultsView.removeCodeSmells(file);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        this.indicator.cancel();
+        this.pendingFiles.clear();
+    }
+
+    public static class Starter implements StartupActivity {
+
+        @Override
+        public void runActivity(@NotNull Project project) {
+            getInstance(project).start();
+        }
+
+    }
+
+}
@@ -0,0 +1,352 @@
+package scope;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.CapturingProcessHandler;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.VcsRoot;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
+import com.intellij.openapi.vcs.changes.ContentRevision;
+import com.intellij.openapi.vcs.changes.LocalChangeList;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
+import com.intellij.util.indexing.FileBasedIndex;
+import org.jetbrains.annotations.NotNull;
+import utils.Utils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The set of files a scan covers. Scopes built from version control only list the files in the diff, so scanning
+ * them costs time in proportion to the size of the change rather than the size of the project.
+ */
+public abstract class ScanScope {
+
+    private static final String GIT_VCS_NAME = "Git";
+
+    private final String name;
+
+    private ScanScope(String name) {
+        this.name = name;
+    }
+
+    public static ScanScope project() {
+        return new IndexScope("the project", GlobalSearchScope::projectScope);
+    }
+
+    public static ScanScope modules(Collection<Module> modules) {
+        if (modules.isEmpty()) {
+            throw new IllegalArgumentException("No module to scan");
+        }
+        List<Module> moduleList = new ArrayList<>(modules);
+        return new IndexScope(describe("module", moduleList.size(), moduleList.get(0).getName()), project -> {
+            GlobalSearchScope scope = GlobalSearchScope.EMPTY_SCOPE;
+            for (Module module : moduleList) {
+                scope = scope.uniteWith(module.getModuleScope());
+            }
+            return scope;
+        });
+    }
+
+    public static ScanScope directories(Collection<VirtualFile> directories) {
+        if (directories.isEmpty()) {
+            throw new IllegalArgumentException("No directory to scan");
+        }
+        VirtualFile[] directoryArray = directories.toArray(VirtualFile.EMPTY_ARRAY);
+        return new IndexScope(describe("directory", directoryArray.length, directoryArray[0].getName()),
+                project -> GlobalSearchScopesCore.directoriesScope(project, true, directoryArray)
+                        .intersectWith(GlobalSearchScope.projectScope(project)));
+    }
+
+    /**
+     * @param files files and directories, e.g. those just changed on disk, of which the Java sources below are scanned
+     */
+    public static ScanScope files(String name, Collection<VirtualFile> files) {
+        List<VirtualFile> fileList = new ArrayList<>(files);
+        return new ScanScope(name) {
+            @Override
+            public Collection<VirtualFile> collectFiles(Project project, ProgressIndicator indicator) {
+                List<VirtualFile> expandedFiles = new ArrayList<>();
+                for (VirtualFile file : fileList) {
+                    if (file.isValid() && file.isDirectory()) {
+                        VfsUtilCore.iterateChildrenRecursively(file, null, child -> {
+                            expandedFiles.add(child);
+                            return true;
+                        });
+                    } else {
+                        expandedFiles.add(file);
+                    }
+                }
+                return filterJavaFiles(project, expandedFiles, indicator);
+            }
+        };
+    }
+
+    public static ScanScope uncommittedChanges() {
+        return new ChangesScope("uncommitted changes", null);
+    }
+
+    public static ScanScope changeList(String changeListName) {
+        return new ChangesScope("changelist '" + changeListName + "'", changeListName);
+    }
+
+    public static ScanScope changedSince(String revision) {
+        return new GitDiffScope(revision);
+    }
+
+    /**
+     * Parses a scope given on the command line: {@code project}, {@code uncommitted}, {@code changelist:<name>},
+     * {@code since:<revision>}, {@code module:<name>[,<name>...]} or {@code dir:<path>[,<path>...]}.
+     *
+     * @throws IllegalArgumentException if the scope is malformed or names modules or directories that do not exist
+     */
+    public static ScanScope parse(Project project, String spec) {
+        int separator = spec.indexOf(':');
+        String kind = separator < 0 ? spec : spec.substring(0, separator);
+        String argument = separator < 0 ? "" : spec.substring(separator + 1);
+        if (kind.equals("project") && argument.isEmpty()) {
+            return project();
+        } else if (kind.equals("uncommitted") && argument.isEmpty()) {
+            return uncommittedChanges();
+        } else if (kind.equals("changelist") && !argument.isEmpty()) {
+            return changeList(argument);
+        } else if (kind.equals("since") && !argument.isEmpty()) {
+            return changedSince(argument);
+        } else if (kind.equals("module") && !argument.isEmpty()) {
+            List<Module> modules = new ArrayList<>();
+            for (String moduleName : splitList(argument)) {
+                Module module = ModuleManager.getInstance(project).findModuleByName(moduleName);
+                if (module == null) {
+                    throw new IllegalArgumentException("No module named " + moduleName);
+                }
+                modules.add(module);
+            }
+            if (modules.isEmpty()) {
+                throw new IllegalArgumentException("No module given in " + spec);
+            }
+            return modules(modules);
+        } else if (kind.equals("dir") && !argument.isEmpty()) {
+            List<VirtualFile> directories = new ArrayList<>();
+            for (String path : splitList(argument)) {
+                File directory = new File(path);
+                if (!directory.isAbsolute() && project.getBasePath() != null) {
+                    directory = new File(project.getBasePath(), path);
+                }
+                VirtualFile virtualFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(directory);
+                if (virtualFile == null || !virtualFile.isDirectory()) {
+                    throw new IllegalArgumentException("No directory at " + directory);
+                }
+                directories.add(virtualFile);
+            }
+            if (directories.isEmpty()) {
+                throw new IllegalArgumentException("No directory given in " + spec);
+            }
+            return directories(directories);
+        }
+        throw new IllegalArgumentException("Unknown scan scope: " + spec);
+    }
+
+    private static List<String> splitList(String argument) {
+        List<String> items = new ArrayList<>();
+        for (String item : StringUtil.split(argument, ",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Lists the Java source files of the project within the scope. Must be called on a background thread, outside
+     * of any read action.
+     *
+     * @throws VcsException if the changes could not be read from version control
+     */
+    public abstract Collection<VirtualFile> collectFiles(Project project, ProgressIndicator indicator) throws VcsException;
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    private static String describe(String kind, int count, String firstName) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(kind);
+        sb.append(" '");
+        sb.append(firstName);
+        sb.append('\'');
+        if (count > 1) {
+            sb.append(" and ");
+            sb.append(count - 1);
+            sb.append(" more");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Keeps the files that still exist and are Java files in the project's content, e.g. dropping deleted files
+     * and changes outside the sources.
+     */
+    private static Collection<VirtualFile> filterJavaFiles(Project project, Collection<VirtualFile> files, ProgressIndicator indicator) {
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        FileTypeRegistry fileTypeRegistry = FileTypeRegistry.getInstance();
+        return Utils.computeInReadActionWithWriteActionPriority(() -> {
+            Set<VirtualFile> javaFiles = new LinkedHashSet<>();
+            for (VirtualFile file : files) {
+                if (file != null && file.isValid() && !file.isDirectory()
+                        && fileTypeRegistry.isFileOfType(file, JavaFileType.INSTANCE) && fileIndex.isInContent(file)) {
+                    javaFiles.add(file);
+                }
+            }
+            return javaFiles;
+        }, indicator);
+    }
+
+    private interface SearchScopeFactory {
+
+        GlobalSearchScope create(Project project);
+
+    }
+
+    private static class IndexScope extends ScanScope {
+
+        private final SearchScopeFactory searchScopeFactory;
+
+        private IndexScope(String name, SearchScopeFactory searchScopeFactory) {
+            super(name);
+            this.searchScopeFactory = searchScopeFactory;
+        }
+
+        @Override
+        public Collection<VirtualFile> collectFiles(Project project, ProgressIndicator indicator) {
+            return Utils.computeInReadActionWithWriteActionPriority(() -> FileBasedIndex.getInstance().getContainingFiles(
+                    FileTypeIndex.NAME, JavaFileType.INSTANCE, this.searchScopeFactory.create(project)), indicator);
+        }
+
+    }
+
+    private static class ChangesScope extends ScanScope {
+
+        // Null for the changes of every changelist
+        private final String changeListName;
+
+        private ChangesScope(String name, String changeListName) {
+            super(name);
+            this.changeListName = changeListName;
+        }
+
+        @Override
+        public Collection<VirtualFile> collectFiles(Project project, ProgressIndicator indicator) throws VcsException {
+            ChangeListManager changeListManager = ChangeListManager.getInstance(project);
+            // The change lists are refreshed asynchronously, so wait for changes made just before the scan
+            changeListManager.ensureUpToDate(false);
+            Collection<Change> changes;
+            if (this.changeListName == null) {
+                changes = changeListManager.getAllChanges();
+            } else {
+                LocalChangeList changeList = changeListManager.findChangeList(this.changeListName);
+                if (changeList == null) {
+                    throw new VcsException("No changelist named " + this.changeListName);
+                }
+                changes = changeList.getChanges();
+            }
+            List<VirtualFile> files = new ArrayList<>();
+            for (Change change : changes) {
+                ContentRevision afterRevision = change.getAfterRevision();
+                if (afterRevision != null) {
+                    files.add(afterRevision.getFile().getVirtualFile());
+                }
+            }
+            if (this.changeListName == null) {
+                // New files that were never added to version control are uncommitted changes as well
+                files.addAll(changeListManager.getUnversionedFiles());
+            }
+            return filterJavaFiles(project, files, indicator);
+        }
+
+    }
+
+    private static class GitDiffScope extends ScanScope {
+
+        private final String revision;
+
+        private GitDiffScope(String revision) {
+            super("changes since " + revision);
+            this.revision = revision;
+        }
+
+        @Override
+        public Collection<VirtualFile> collectFiles(Project project, ProgressIndicator indicator) throws VcsException {
+            List<VirtualFile> files = new ArrayList<>();
+            boolean hasGitRoot = false;
+            for (VcsRoot root : ProjectLevelVcsManager.getInstance(project).getAllVcsRoots()) {
+                if (root.getVcs() == null || !GIT_VCS_NAME.equals(root.getVcs().getName()) || root.getPath() == null) {
+                    continue;
+                }
+                hasGitRoot = true;
+                VirtualFile rootDir = root.getPath();
+                // Diffing against the fork point leaves out what only changed on the revision's own branch since then
+                String mergeBase = git(rootDir, indicator, "merge-base", this.revision, "HEAD").trim();
+                // Committed and uncommitted changes to tracked files, leaving out deletions, plus new untracked files
+                collectPaths(rootDir, git(rootDir, indicator, "diff", "--name-only", "-z", "--relative",
+                        "--diff-filter=d", mergeBase, "--"), files);
+                collectPaths(rootDir, git(rootDir, indicator, "ls-files", "-z", "--others", "--exclude-standard"), files);
+            }
+            if (!hasGitRoot) {
+                throw new VcsException("The project has no Git repository");
+            }
+            return filterJavaFiles(project, files, indicator);
+        }
+
+        private static void collectPaths(VirtualFile rootDir, String output, List<VirtualFile> files) {
+            // Both commands list paths relative to the directory they ran in, which is the VCS root
+            for (String path : StringUtil.split(output, "\0")) {
+                files.add(rootDir.findFileByRelativePath(path));
+            }
+        }
+
+        @NotNull
+        private static String git(VirtualFile rootDir, ProgressIndicator indicator, String... parameters) throws VcsException {
+            GeneralCommandLine commandLine = new GeneralCommandLine("git")
+                    .withParameters(parameters)
+                    .withWorkDirectory(rootDir.getPath())
+                    .withCharset(StandardCharsets.UTF_8);
+            ProcessOutput output;
+            try {
+                output = new CapturingProcessHandler(commandLine).runProcessWithProgressIndicator(indicator);
+            } catch (ExecutionException e) {
+                throw new VcsException(e);
+            }
+            indicator.checkCanceled();
+            if (output.getExitCode() != 0) {
+                throw new VcsException("git " + StringUtil.join(parameters, " ") + " failed in " + rootDir.getPath()
+                        + ": " + output.getStderr().trim());
+            }
+            return output.getStdout();
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+package scope;
+
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.ComboBox;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
+import com.intellij.openapi.vcs.changes.LocalChangeList;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.components.JBRadioButton;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asks which files the batch action should scan: the whole project, the modules or directories selected when the
+ * action was invoked, or only what version control reports as changed.
+ */
+public class ScanScopeDialog extends DialogWrapper {
+
+    private static final String LAST_REVISION_KEY = "code.smell.scan.scope.revision";
+    private static final String DEFAULT_REVISION = "HEAD";
+
+    private final Project project;
+    private final List<Module> selectedModules;
+    private final List<VirtualFile> selectedDirectories;
+
+    private final JBRadioButton projectButton = new JBRadioButton("Whole project", true);
+    private final JBRadioButton selectionButton = new JBRadioButton();
+    private final JBRadioButton uncommittedButton = new JBRadioButton("Uncommitted changes");
+    private final JBRadioButton changeListButton = new JBRadioButton("Changelist:");
+    private final JBRadioButton revisionButton = new JBRadioButton("Files changed since Git revision:");
+    private final ComboBox<String> changeListComboBox = new ComboBox<>();
+    private final JBTextField revisionField = new JBTextField();
+
+    /**
+     * @param selectedModules     the modules selected when the action was invoked, scanned in preference to the
+     *                            directories if there are any
+     * @param selectedDirectories the directories selected when the action was invoked
+     */
+    public ScanScopeDialog(Project project, List<Module> selectedModules, List<VirtualFile> selectedDirectories) {
+        super(project, true);
+        this.project = project;
+        this.selectedModules = selectedModules;
+        this.selectedDirectories = selectedDirectories;
+        setTitle("Detect Code Smells");
+        setOKButtonText("Scan");
+        init();
+    }
+
+    @Nullable
+    @Override
+    protected JComponent createCenterPanel() {
+        ButtonGroup group = new ButtonGroup();
+        for (JBRadioButton button : new JBRadioButton[]{this.projectButton, this.selectionButton,
+                this.uncommittedButton, this.changeListButton, this.revisionButton}) {
+            group.add(button);
+            button.addChangeListener(e -> updateEnabled());
+        }
+
+        ScanScope selectionScope = getSelectionScope();
+        this.selectionButton.setText(selectionScope == null ? "Selected modules or directories"
+                : StringUtil.capitalize(selectionScope.getName()));
+        this.selectionButton.setEnabled(selectionScope != null);
+        this.selectionButton.setSelected(selectionScope != null);
+
+        ChangeListManager changeListManager = ChangeListManager.getInstance(this.project);
+        for (LocalChangeList changeList : changeListManager.getChangeListsCopy()) {
+            this.changeListComboBox.addItem(changeList.getName());
+        }
+        this.changeListComboBox.setSelectedItem(changeListManager.getDefaultListName());
+        this.changeListButton.setEnabled(this.changeListComboBox.getItemCount() > 0);
+        this.revisionField.setText(PropertiesComponent.getInstance(this.project).getValue(LAST_REVISION_KEY, DEFAULT_REVISION));
+        updateEnabled();
+
+        return FormBuilder.createFormBuilder()
+                .addComponent(this.projectButton)
+                .addComponent(this.selectionButton)
+                .addComponent(this.uncommittedButton)
+                .addLabeledComponent(this.changeListButton, this.changeListComboBox)
+                .addLabeledComponent(this.revisionButton, this.revisionField)
+                .getPanel();
+    }
+
+    @Nullable
+    @Override
+    protected ValidationInfo doValidate() {
+        if (this.revisionButton.isSelected() && StringUtil.isEmptyOrSpaces(this.revisionField.getText())) {
+            return new ValidationInfo("Enter a branch, tag or commit", this.revisionField);
+        }
+        return null;
+    }
+
+    @Override
+    protected void doOKAction() {
+        if (this.revisionButton.isSelected()) {
+            PropertiesComponent.getInstance(this.project).setValue(LAST_REVISION_KEY, this.revisionField.getText().trim(),
+                    DEFAULT_REVISION);
+        }
+        super.doOKAction();
+    }
+
+    public ScanScope getScope() {
+        if (this.selectionButton.isSelected()) {
+            return getSelectionScope();
+        } else if (this.uncommittedButton.isSelected()) {
+            return ScanScope.uncommittedChanges();
+        } else if (this.changeListButton.isSelected()) {
+            return ScanScope.changeList((String) this.changeListComboBox.getSelectedItem());
+        } else if (this.revisionButton.isSelected()) {
+            return ScanScope.changedSince(this.revisionField.getText().trim());
+        }
+        return ScanScope.project();
+    }
+
+    @Nullable
+    private ScanScope getSelectionScope() {
+        if (!this.selectedModules.isEmpty()) {
+            return ScanScope.modules(this.selectedModules);
+        }
+        if (!this.selectedDirectories.isEmpty()) {
+            return ScanScope.directories(new ArrayList<>(this.selectedDirectories));
+        }
+        return null;
+    }
+
+    private void updateEnabled() {
+        this.changeListComboBox.setEnabled(this.changeListButton.isSelected());
+        this.revisionField.setEnabled(this.revisionButton.isSelected());
+    }
+
+}
@@ -0,0 +1,102 @@
+package settings;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.ToolbarDecorator;
+import com.intellij.ui.components.JBList;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+public class CodeSmellConfigurable implements Configurable {
+
+    private JSpinner parallelismSpinner;
+    private JCheckBox profileScansCheckBox;
+    private JCheckBox continuousAnalysisCheckBox;
+    private CollectionListModel<String> extraUITypesModel;
+
+    @Nls(capitalization = Nls.Capitalization.Title)
+    @Override
+    public String getDisplayName() {
+        return "Code Smell Detector";
+    }
+
+    @Nullable
+    @Override
+    public JComponent createComponent() {
+        int maxThreads = Math.max(1, Runtime.getRuntime().availableProcessors() * 2);
+        this.parallelismSpinner = new JSpinner(new SpinnerNumberModel(1, 1, maxThreads, 1));
+        this.profileScansCheckBox = new JCheckBox("Profile scans and report the slowest files and detectors");
+        this.continuousAnalysisCheckBox = new JCheckBox("Reanalyze files in the background as they change on disk");
+        this.extraUITypesModel = new CollectionListModel<>();
+        JBList<String> extraUITypesList = new JBList<>(this.extraUITypesModel);
+        extraUITypesList.getEmptyText().setText("No extra UI types");
+        JPanel extraUITypesPanel = ToolbarDecorator.createDecorator(extraUITypesList)
+                .setAddAction(button -> addExtraUIType())
+                .disableUpDownActions()
+                .createPanel();
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("Scan worker threads:", this.parallelismSpinner)
+                .addComponent(this.profileScansCheckBox)
+                .addComponent(this.continuousAnalysisCheckBox)
+                .addLabeledComponent("Extra UI types (subclasses are treated as UI in Heavy AsyncTask detection):",
+                        extraUITypesPanel, true)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        CodeSmellSettings settings = CodeSmellSettings.getInstance();
+        return getSpinnerValue() != settings.getScanParallelism() ||
+                this.profileScansCheckBox.isSelected() != settings.isProfileScans() ||
+                this.continuousAnalysisCheckBox.isSelected() != settings.isContinuousAnalysis() ||
+                !this.extraUITypesModel.getItems().equals(settings.getExtraUITypes());
+    }
+
+    @Override
+    public void apply() {
+        CodeSmellSettings settings = CodeSmellSettings.getInstance();
+        settings.setScanParallelism(getSpinnerValue());
+        settings.setProfileScans(this.profileScansCheckBox.isSelected());
+        settings.setContinuousAnalysis(this.continuousAnalysisCheckBox.isSelected());
+        settings.setExtraUITypes(this.extraUITypesModel.getItems());
+    }
+
+    @Override
+    public void reset() {
+        CodeSmellSettings settings = CodeSmellSettings.getInstance();
+        this.parallelismSpinner.setValue(settings.getScanParallelism());
+        this.profileScansCheckBox.setSelected(settings.isProfileScans());
+        this.continuousAnalysisCheckBox.setSelected(settings.isContinuousAnalysis());
+        this.extraUITypesModel.replaceAll(settings.getExtraUITypes());
+    }
+
+    @Override
+    public void disposeUIResources() {
+        this.parallelismSpinner = null;
+        this.profileScansCheckBox = null;
+        this.continuousAnalysisCheckBox = null;
+        this.extraUITypesModel = null;
+    }
+
+    private void addExtraUIType() {
+        String qualifiedName = Messages.showInputDialog("Fully qualified name of the UI class:", "Add UI Type", null);
+        if (qualifiedName == null) {
+            return;
+        }
+        qualifiedName = qualifiedName.trim();
+        if (!StringUtil.isEmpty(qualifiedName) && !this.extraUITypesModel.contains(qualifiedName)) {
+            this.extraUITypesModel.add(qualifiedName);
+        }
+    }
+
+    private int getSpinnerValue() {
+        return (Integer) this.parallelismSpinner.getValue();
+    }
+
+}
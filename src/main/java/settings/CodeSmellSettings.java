@@ -0,0 +1,73 @@
+package settings;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@State(name = "CodeSmellSettings", storages = @Storage("codeSmellDetector.xml"))
+public class CodeSmellSettings implements PersistentStateComponent<CodeSmellSettings> {
+
+    // Leave one core free for the EDT and the highlighting passes by default
+    public int scanParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    public boolean profileScans = false;
+    public boolean continuousAnalysis = false;
+    // Fully qualified names of project-specific UI classes, e.g. wrappers around Android views
+    public List<String> extraUITypes = new ArrayList<>();
+
+    public static CodeSmellSettings getInstance() {
+        return ServiceManager.getService(CodeSmellSettings.class);
+    }
+
+    @NotNull
+    @Override
+    public CodeSmellSettings getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull CodeSmellSettings state) {
+        XmlSerializerUtil.copyBean(state, this);
+    }
+
+    public int getScanParallelism() {
+        return Math.max(1, this.scanParallelism);
+    }
+
+    public void setScanParallelism(int scanParallelism) {
+        this.scanParallelism = Math.max(1, scanParallelism);
+    }
+
+    public boolean isProfileScans() {
+        return this.profileScans;
+    }
+
+    public void setProfileScans(boolean profileScans) {
+        this.profileScans = profileScans;
+    }
+
+    public boolean isContinuousAnalysis() {
+        return this.continuousAnalysis;
+    }
+
+    public void setContinuousAnalysis(boolean continuousAnalysis) {
+        this.continuousAnalysis = continuousAnalysis;
+    }
+
+    /**
+     * @return the configured UI types, which are replaced rather than modified when the settings change
+     */
+    public List<String> getExtraUITypes() {
+        return this.extraUITypes;
+    }
+
+    public void setExtraUITypes(List<String> extraUITypes) {
+        this.extraUITypes = new ArrayList<>(extraUITypes);
+    }
+
+}
@@ -0,0 +1,327 @@
+package toolwindow;
+
+import codesmell.CodeSmellFingerprint;
+import codesmell.CodeSmellPointer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.ColoredTreeCellRenderer;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.SimpleTextAttributes;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+import utils.Constants;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lists the code smells found by the batch scan in a tree grouped by code smell type, module and file.
+ * Results can be added from any thread while the scan is running. The tree only holds {@link CodeSmellPointer}s,
+ * and the line of each code smell is only computed once its row is actually painted.
+ */
+public class CodeSmellResultsView {
+
+    private static final String NO_MODULE = "<no module>";
+
+    private final Project project;
+    private final DefaultMutableTreeNode root = new DefaultMutableTreeNode();
+    private final DefaultTreeModel model = new DefaultTreeModel(this.root);
+    private final Map<Pair<DefaultMutableTreeNode, Object>, GroupNode> groupNodes = new HashMap<>();
+    // A file reported again, e.g. after it was reanalyzed, must not list the same code smells twice
+    private final Set<CodeSmellFingerprint> shownCodeSmells = new HashSet<>();
+
+    private final Queue<PendingResult> pendingResults = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isFlushScheduled = new AtomicBoolean();
+
+    private Tree tree;
+
+    public CodeSmellResultsView(Project project) {
+        this.project = project;
+    }
+
+    public static CodeSmellResultsView getInstance(Project project) {
+        return ServiceManager.getService(project, CodeSmellResultsView.class);
+    }
+
+    public void addCodeSmells(VirtualFile virtualFile, Collection<CodeSmellPointer> codeSmells) {
+        if (!codeSmells.isEmpty()) {
+            addPendingResult(new PendingResult(virtualFile, codeSmells, false));
+        }
+    }
+
+    /**
+     * Replaces whatever is listed for the file, e.g. after it was reanalyzed in the background.
+     */
+    public void replaceCodeSmells(VirtualFile virtualFile, Collection<CodeSmellPointer> codeSmells) {
+        addPendingResult(new PendingResult(virtualFile, codeSmells, true));
+    }
+
+    /**
+     * Removes whatever is listed for the file or, given a directory, for every file below it.
+     */
+    public void removeCodeSmells(VirtualFile fileOrDirectory) {
+        addPendingResult(new PendingResult(fileOrDirectory, Collections.emptyList(), true));
+    }
+
+    private void addPendingResult(PendingResult result) {
+        this.pendingResults.add(result);
+        // Batch the results that arrive while the EDT is busy into a single update of the tree
+        if (this.isFlushScheduled.compareAndSet(false, true)) {
+            ApplicationManager.getApplication().invokeLater(this::flushPendingResults, this.project.getDisposed());
+        }
+    }
+
+    /**
+     * Must be called on the EDT, before starting the scan whose results are to be shown, so none of them is dropped.
+     */
+    public void clear() {
+        ApplicationManager.getApplication().assertIsDispatchThread();
+        this.pendingResults.clear();
+        this.groupNodes.clear();
+        this.shownCodeSmells.clear();
+        this.root.removeAllChildren();
+        this.model.reload();
+    }
+
+    public void show() {
+        ToolWindow toolWindow = ToolWindowManager.getInstance(this.project).getToolWindow(Constants.TOOL_WINDOW_ID);
+        if (toolWindow != null) {
+            toolWindow.activate(null, false);
+        }
+    }
+
+    @NotNull
+    public JComponent createComponent() {
+        this.tree = new Tree(this.model);
+        this.tree.setRootVisible(false);
+        this.tree.setShowsRootHandles(true);
+        // A fixed row height lets the tree only lay out and paint the rows that are visible
+        this.tree.setRowHeight(this.tree.getFontMetrics(this.tree.getFont()).getHeight() + JBUI.scale(4));
+        this.tree.setLargeModel(true);
+        this.tree.setCellRenderer(new CodeSmellTreeCellRenderer());
+        this.tree.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    navigateToSelection();
+                }
+            }
+        });
+        this.tree.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    navigateToSelection();
+                }
+            }
+        });
+        return ScrollPaneFactory.createScrollPane(this.tree);
+    }
+
+    private void flushPendingResults() {
+        this.isFlushScheduled.set(false);
+        PendingResult result;
+        while ((result = this.pendingResults.poll()) != null) {
+            VirtualFile virtualFile = result.virtualFile;
+            if (result.replace) {
+                removeFileNodes(virtualFile);
+            }
+            if (!virtualFile.isValid()) {
+                continue;
+            }
+            Module module = ModuleUtilCore.findModuleForFile(virtualFile, this.project);
+            String moduleName = module == null ? NO_MODULE : module.getName();
+            for (CodeSmellPointer codeSmell : result.codeSmells) {
+                if (!this.shownCodeSmells.add(codeSmell.getFingerprint())) {
+                    continue;
+                }
+                GroupNode typeNode = getOrCreateGroupNode(this.root, codeSmell.getName());
+                GroupNode moduleNode = getOrCreateGroupNode(typeNode, moduleName);
+                GroupNode fileNode = getOrCreateGroupNode(moduleNode, virtualFile);
+                this.model.insertNodeInto(new CodeSmellNode(codeSmell, virtualFile), fileNode, fileNode.getChildCount());
+                typeNode.codeSmellCount++;
+                moduleNode.codeSmellCount++;
+                fileNode.codeSmellCount++;
+            }
+        }
+    }
+
+    private void removeFileNodes(VirtualFile fileOrDirectory) {
+        List<GroupNode> fileNodes = new ArrayList<>();
+        for (Map.Entry<Pair<DefaultMutableTreeNode, Object>, GroupNode> entry : this.groupNodes.entrySet()) {
+            Object key = entry.getKey().second;
+            if (key instanceof VirtualFile && VfsUtilCore.isAncestor(fileOrDirectory, (VirtualFile) key, false)) {
+                fileNodes.add(entry.getValue());
+            }
+        }
+        for (GroupNode fileNode : fileNodes) {
+            for (int i = 0; i < fileNode.getChildCount(); i++) {
+                this.shownCodeSmells.remove(((CodeSmellNode) fileNode.getChildAt(i)).getCodeSmell().getFingerprint());
+            }
+            // Update the counts up to the type node, dropping the groups that end up empty
+            int removedCount = fileNode.codeSmellCount;
+            DefaultMutableTreeNode node = fileNode;
+            while (node instanceof GroupNode) {
+                GroupNode groupNode = (GroupNode) node;
+                DefaultMutableTreeNode parent = (DefaultMutableTreeNode) groupNode.getParent();
+                groupNode.codeSmellCount -= removedCount;
+                if (groupNode.codeSmellCount <= 0) {
+                    this.groupNodes.remove(Pair.create(parent, groupNode.getUserObject()));
+                    this.model.removeNodeFromParent(groupNode);
+                }
+                node = parent;
+            }
+        }
+    }
+
+    private GroupNode getOrCreateGroupNode(DefaultMutableTreeNode parent, Object key) {
+        Pair<DefaultMutableTreeNode, Object> nodeKey = Pair.create(parent, key);
+        GroupNode node = this.groupNodes.get(nodeKey);
+        if (node == null) {
+            node = new GroupNode(key);
+            this.groupNodes.put(nodeKey, node);
+            this.model.insertNodeInto(node, parent, parent.getChildCount());
+            if (parent == this.root && this.tree != null) {
+                this.tree.expandPath(new TreePath(parent.getPath()));
+            }
+        }
+        return node;
+    }
+
+    private void navigateToSelection() {
+        Object selected = this.tree.getLastSelectedPathComponent();
+        if (selected instanceof CodeSmellNode) {
+            ((CodeSmellNode) selected).navigate(this.project);
+        } else if (selected instanceof GroupNode && ((GroupNode) selected).getUserObject() instanceof VirtualFile) {
+            VirtualFile virtualFile = (VirtualFile) ((GroupNode) selected).getUserObject();
+            new OpenFileDescriptor(this.project, virtualFile).navigate(true);
+        }
+    }
+
+    private static class PendingResult {
+
+        private final VirtualFile virtualFile;
+        private final Collection<CodeSmellPointer> codeSmells;
+        // Whether the code smells replace those already listed for the file
+        private final boolean replace;
+
+        private PendingResult(VirtualFile virtualFile, Collection<CodeSmellPointer> codeSmells, boolean replace) {
+            this.virtualFile = virtualFile;
+            this.codeSmells = codeSmells;
+            this.replace = replace;
+        }
+
+    }
+
+    private static class GroupNode extends DefaultMutableTreeNode {
+
+        private int codeSmellCount = 0;
+
+        private GroupNode(Object key) {
+            super(key);
+        }
+
+    }
+
+    private static class CodeSmellNode extends DefaultMutableTreeNode {
+
+        private final VirtualFile virtualFile;
+        private String presentableText;
+
+        private CodeSmellNode(CodeSmellPointer codeSmell, VirtualFile virtualFile) {
+            super(codeSmell, false);
+            this.virtualFile = virtualFile;
+        }
+
+        private CodeSmellPointer getCodeSmell() {
+            return (CodeSmellPointer) getUserObject();
+        }
+
+        private String getPresentableText() {
+            if (this.presentableText == null) {
+                CodeSmellPointer codeSmell = getCodeSmell();
+                StringBuilder sb = new StringBuilder();
+                int lineNum = getLineNum();
+                if (lineNum > 0) {
+                    sb.append("Line ");
+                    sb.append(lineNum);
+                    sb.append(": ");
+                }
+                sb.append(codeSmell.getShortDescription());
+                this.presentableText = sb.toString();
+            }
+            return this.presentableText;
+        }
+
+        private int getLineNum() {
+            Document document = FileDocumentManager.getInstance().getDocument(this.virtualFile);
+            int offset = getCodeSmell().getOffset();
+            if (document == null || offset < 0) {
+                return -1;
+            }
+            return offset <= document.getTextLength() ? document.getLineNumber(offset) + 1 : -1;
+        }
+
+        private void navigate(Project project) {
+            getCodeSmell().navigate(project);
+        }
+
+    }
+
+    private static class CodeSmellTreeCellRenderer extends ColoredTreeCellRenderer {
+
+        @Override
+        public void customizeCellRenderer(@NotNull JTree tree, Object value, boolean selected, boolean expanded,
+                                          boolean leaf, int row, boolean hasFocus) {
+            if (value instanceof CodeSmellNode) {
+                append(((CodeSmellNode) value).getPresentableText());
+                return;
+            }
+            if (!(value instanceof GroupNode)) {
+                return;
+            }
+            GroupNode node = (GroupNode) value;
+            Object userObject = node.getUserObject();
+            if (userObject instanceof VirtualFile) {
+                VirtualFile virtualFile = (VirtualFile) userObject;
+                setIcon(virtualFile.getFileType().getIcon());
+                append(virtualFile.getName());
+                append("  " + virtualFile.getPresentableUrl(), SimpleTextAttributes.GRAYED_ATTRIBUTES);
+            } else if (userObject != null) {
+                append(userObject.toString(), SimpleTextAttributes.REGULAR_BOLD_ATTRIBUTES);
+            }
+            append("  (" + node.codeSmellCount + ")", SimpleTextAttributes.GRAYED_ATTRIBUTES);
+        }
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package toolwindow;
+
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+import utils.Constants;
+
+public class CodeSmellToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        CodeSmellResultsView resultsView = CodeSmellResultsView.getInstance(project);
+        SimpleToolWindowPanel panel = new SimpleToolWindowPanel(false, true);
+        panel.setContent(resultsView.createComponent());
+
+        ActionManager actionManager = ActionManager.getInstance();
+        DefaultActionGroup actions = new DefaultActionGroup(actionManager.getAction(Constants.WRITE_BASELINE_ACTION_ID));
+        ActionToolbar toolbar = actionManager.createActionToolbar(Constants.TOOL_WINDOW_ID, actions, false);
+        toolbar.setTargetComponent(panel);
+        panel.setToolbar(toolbar.getComponent());
+
+        Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "", false);
+        toolWindow.getContentManager().addContent(content);
+    }
+
+}
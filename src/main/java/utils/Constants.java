@@ -4,6 +4,24 @@ public class Constants {
 
     public static final String REFACTOR_TRIGGER = "refactor";
     public static final String NAVIGATE_TRIGGER = "navigate";
+    public static final String SHOW_RESULTS_TRIGGER = "show";
+    public static final String EXPORT_TRACE_TRIGGER = "exportTrace";
     public static final String PERF_TIPS_URL = "https://developer.android.com/training/articles/perf-tips.html#Loops";
 
+    public static final String SLOW_LOOP = "Slow Loop";
+    public static final String HEAVY_ASYNC_TASK = "Heavy AsyncTask";
+
+    public static final String BASELINE_FILE_NAME = "code-smell-baseline.txt";
+    public static final String TOOL_WINDOW_ID = "Code Smells";
+    public static final String WRITE_BASELINE_ACTION_ID = "write-cs-baseline";
+    public static final String SCANNER_POOL_NAME = "Code Smell Scanner";
+    public static final String REFACTORING_POOL_NAME = "Code Smell Refactoring";
+    public static final String BASELINE_POOL_NAME = "Code Smell Baseline";
+    public static final int SCAN_WORK_UNIT_SIZE = 32;
+    public static final int SCAN_PENDING_WORK_UNITS_PER_THREAD = 2;
+    public static final int CONTINUOUS_ANALYSIS_DELAY_MS = 2000;
+    public static final int CONTINUOUS_ANALYSIS_MAX_THREADS = 2;
+    public static final int PROFILE_REPORT_MAX_FILES = 20;
+    public static final int PROFILE_SUMMARY_MAX_FILES = 5;
+
 }
@@ -1,37 +1,36 @@
 package utils;
 
-import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.project.Project;
-import com.intellij.psi.*;
-import com.siyeh.ig.psiutils.CommentTracker;
-
-import java.util.Map;
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Ref;
 
 public class Utils {
 
-    public static void refactorCodeSegment(Project project, Map<PsiElement, String> refactoringMapping) {
-        PsiElementFactory factory = JavaPsiFacade.getElementFactory(project);
-        for (Map.Entry<PsiElement, String> entry : refactoringMapping.entrySet()) {
-            PsiElement element = entry.getKey();
-            String newText = entry.getValue();
-
-            CommentTracker ct = new CommentTracker();
-            PsiElement newElement = null;
-            if (element instanceof PsiStatement) {
-                newElement = factory.createStatementFromText(newText, element);
-            } else if (element instanceof PsiMethod) {
-                newElement = factory.createMethodFromText(newText, element);
-            }
-            if (newElement != null) {
-                ct.replaceAndRestoreComments(element, newElement);
-            }
-        }
+    /**
+     * Runs the computation in a short read action that is cancelled as soon as a write action is requested.
+     * After a cancellation, waits for the pending writes to finish and then restarts the computation from scratch,
+     * so the computation must not leave partial results behind when cancelled.
+     */
+    public static <T> T computeInReadActionWithWriteActionPriority(Computable<T> computation) {
+        return computeInReadActionWithWriteActionPriority(computation, new EmptyProgressIndicator());
     }
 
-    public static void runOnBackgroundThread(Runnable task) {
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            ApplicationManager.getApplication().runReadAction(task);
-        });
+    /**
+     * As {@link #computeInReadActionWithWriteActionPriority(Computable)}, but also gives up with a
+     * {@link com.intellij.openapi.progress.ProcessCanceledException} once the given indicator is cancelled.
+     */
+    public static <T> T computeInReadActionWithWriteActionPriority(Computable<T> computation, ProgressIndicator indicator) {
+        Ref<T> result = Ref.create();
+        while (!ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(
+                () -> result.set(computation.compute()), new SensitiveProgressWrapper(indicator))) {
+            // Let an outer cancellation (e.g. the scan being stopped) win over another restart
+            indicator.checkCanceled();
+            ProgressIndicatorUtils.yieldToPendingWriteActions();
+        }
+        return result.get();
     }
 
 }
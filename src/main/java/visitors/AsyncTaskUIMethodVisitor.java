@@ -1,24 +1,45 @@
 package visitors;
 
 import com.intellij.psi.*;
-import com.intellij.psi.util.InheritanceUtil;
-import com.intellij.psi.util.PsiUtil;
+import detection.FileAnalysisContext;
+import detection.UITypeClassifier;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-public class AsyncTaskUIMethodVisitor extends JavaRecursiveElementWalkingVisitor {
+/**
+ * Handles a single element at a time. Either {@link #walk(PsiMethod)} the UI method with it, or feed it the elements
+ * of the UI method from a traversal shared with other detectors, as done by the {@link SourceCodeVisitor}.
+ */
+public class AsyncTaskUIMethodVisitor extends JavaElementVisitor {
 
+    private static final Set<String> UI_METHOD_NAMES = Collections.singleton("finish");
+
+    private final FileAnalysisContext context;
+    private final UITypeClassifier uiTypeClassifier;
     private Set<PsiStatement> statementsToIgnore;
     private Set<PsiParameter> uiMethodParameters;
 
-    public AsyncTaskUIMethodVisitor(PsiParameter[] parameters) {
+    public AsyncTaskUIMethodVisitor(FileAnalysisContext context, UITypeClassifier uiTypeClassifier, PsiParameter[] parameters) {
+        this.context = context;
+        this.uiTypeClassifier = uiTypeClassifier;
         this.statementsToIgnore = new HashSet<>();
         this.uiMethodParameters = new HashSet<>();
         this.uiMethodParameters.addAll(Arrays.asList(parameters));
     }
 
+    public void walk(PsiMethod uiMethod) {
+        uiMethod.accept(new PsiRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitElement(PsiElement element) {
+                element.accept(AsyncTaskUIMethodVisitor.this);
+                super.visitElement(element);
+            }
+        });
+    }
+
     @Override
     public void visitMethodCallExpression(PsiMethodCallExpression methodCallExp) {
         if (isUIMethodCall(methodCallExp)) {
@@ -36,7 +57,7 @@ public class AsyncTaskUIMethodVisitor extends JavaRecursiveElementWalkingVisitor
             PsiExpression qualifier = methodRef.getQualifierExpression();
             if (qualifier instanceof PsiReferenceExpression) {
                 PsiReferenceExpression qualifierRef = (PsiReferenceExpression) qualifier;
-                PsiElement resolvedRef = qualifierRef.resolve();
+                PsiElement resolvedRef = this.context.resolve(qualifierRef);
                 PsiStatement resolvedStat = getSurroundingStatement(resolvedRef);
                 if (resolvedStat != null && this.statementsToIgnore.contains(resolvedStat)) {
                     addSurroundingStatementToIgnores(methodCallExp);
@@ -50,7 +71,7 @@ public class AsyncTaskUIMethodVisitor extends JavaRecursiveElementWalkingVisitor
     @Override
     public void visitReferenceExpression(PsiReferenceExpression expression) {
         // If any statement uses an expression that resolves to a method parameter, mark the statement as ignored
-        PsiElement element = expression.resolve();
+        PsiElement element = this.context.resolve(expression);
         if (element instanceof PsiParameter && this.uiMethodParameters.contains(element)) {
             addSurroundingStatementToIgnores(expression);
         }
@@ -88,7 +109,7 @@ public class AsyncTaskUIMethodVisitor extends JavaRecursiveElementWalkingVisitor
     private void checkForVariableReference(PsiExpression possibleVariableRef) {
         if (possibleVariableRef instanceof PsiReferenceExpression) {
             PsiReferenceExpression ref = (PsiReferenceExpression) possibleVariableRef;
-            PsiElement resolvedRef = ref.resolve();
+            PsiElement resolvedRef = this.context.resolve(ref);
             if (resolvedRef instanceof PsiVariable) {
                 addSurroundingStatementToIgnores(resolvedRef);
             }
@@ -120,26 +141,14 @@ public class AsyncTaskUIMethodVisitor extends JavaRecursiveElementWalkingVisitor
     private boolean isUIMethodCall(PsiMethodCallExpression methodCallExp) {
         PsiReferenceExpression methodRef = methodCallExp.getMethodExpression();
         PsiExpression qualifier = methodRef.getQualifierExpression();
-        PsiType methodCallType = methodCallExp.getType();
-
-        Set<String> uiMethodNames = new HashSet<>();
-        uiMethodNames.add("finish");
-
-        return isUIType(methodCallType) ||
-                qualifier != null && isUIType(qualifier.getType()) ||
-                uiMethodNames.contains(methodRef.getReferenceName());
+        // The name check needs no type resolution, so it goes first
+        return UI_METHOD_NAMES.contains(methodRef.getReferenceName()) ||
+                isUIType(methodCallExp.getType()) ||
+                qualifier != null && isUIType(qualifier.getType());
     }
 
     private boolean isUIType(PsiType type) {
-        if (InheritanceUtil.isInheritor(type, "android.view.View")) {
-            return true;
-        }
-        PsiClass classOfType = PsiUtil.resolveClassInType(type);
-        if (classOfType != null) {
-            String packageName = PsiUtil.getPackageName(classOfType);
-            return "android.widget".equals(packageName) || "android.app".equals(packageName);
-        }
-        return false;
+        return this.uiTypeClassifier.isUIType(type);
     }
 
 }
@@ -4,12 +4,17 @@ import codesmell.slowloop.SlowLoopCodeSmell;
 import com.intellij.psi.*;
 import com.intellij.psi.util.InheritanceUtil;
 import com.siyeh.HardcodedMethodConstants;
-import com.siyeh.ig.psiutils.VariableAccessUtils;
+import detection.FileAnalysisContext;
 
-public class IndexedLoopVisitor extends JavaRecursiveElementWalkingVisitor {
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class IndexedLoopVisitor extends LoopBodyVisitor {
 
     private final PsiLocalVariable indexVariable;
     private final PsiVariable referenceVariable;
+    private final Set<PsiVariable> trackedVariables;
 
     private boolean hasNonThisQualifierBeforeAccessExpression = false;
     private boolean isReassigned = false;
@@ -19,44 +24,85 @@ public class IndexedLoopVisitor extends JavaRecursiveElementWalkingVisitor {
     private PsiLocalVariable forEachReplacement = null;
     private PsiExpression accessExpression = null;
 
-    public IndexedLoopVisitor(PsiLocalVariable indexVariable, PsiVariable referenceVariable) {
+    public IndexedLoopVisitor(FileAnalysisContext context, PsiLocalVariable indexVariable, PsiVariable referenceVariable) {
+        super(context);
         this.indexVariable = indexVariable;
         this.referenceVariable = referenceVariable;
+        this.trackedVariables = new HashSet<>(Arrays.asList(indexVariable, referenceVariable));
+    }
+
+    @Override
+    public Set<PsiVariable> getTrackedVariables() {
+        return this.trackedVariables;
     }
 
     @Override
-    public void visitReferenceExpression(PsiReferenceExpression expression) {
+    public void visitVariableReference(PsiReferenceExpression expression, PsiVariable variable) {
+        if (variable.equals(this.indexVariable)) {
+            visitIndexReference(expression);
+        } else if (variable.equals(this.referenceVariable)) {
+            visitReferenceVariableReference(expression);
+        }
+    }
+
+    private void visitIndexReference(PsiReferenceExpression expression) {
         // Check if index variable is used in the expression. To determine if this is an instance of a
         // slow loop code smell, the index variable can ONLY be in one of these two cases:
         //   1. An array access expression, where the array is the reference variable
         //   2. A method call expression that is the list get method call
-        if (isIndexVariable(expression)) {
-            PsiElement parent = expression.getParent();
-            if (parent instanceof PsiArrayAccessExpression) {
-                PsiArrayAccessExpression arrayExp = (PsiArrayAccessExpression) parent;
-                PsiExpression arrayRef = arrayExp.getArrayExpression();
-                if (!isReferenceVariable(arrayRef)) {
+        PsiElement parent = expression.getParent();
+        if (parent instanceof PsiArrayAccessExpression) {
+            PsiArrayAccessExpression arrayExp = (PsiArrayAccessExpression) parent;
+            PsiExpression arrayRef = arrayExp.getArrayExpression();
+            if (!isReferenceVariable(arrayRef)) {
+                this.isIndexOnlyUsedForReferenceAccess = false;
+            } else {
+                checkForQualifierInFrontOfGetCall(arrayRef, arrayExp);
+                checkForForEachReplacement(arrayExp);
+            }
+        } else if (parent.getParent() instanceof PsiMethodCallExpression) {
+            PsiMethodCallExpression methodCallExp = (PsiMethodCallExpression) parent.getParent();
+            PsiReferenceExpression methodExp = methodCallExp.getMethodExpression();
+            PsiMethod method = this.context.resolveMethod(methodCallExp);
+            PsiExpression methodCallRef = methodExp.getQualifierExpression();
+            if (method != null) {
+                if (!HardcodedMethodConstants.GET.equals(method.getName()) || !isReferenceVariable(methodCallRef)) {
                     this.isIndexOnlyUsedForReferenceAccess = false;
                 } else {
-                    checkForQualifierInFrontOfGetCall(arrayRef, arrayExp);
-                }
-            } else if (parent.getParent() instanceof PsiMethodCallExpression) {
-                PsiMethodCallExpression methodCallExp = (PsiMethodCallExpression) parent.getParent();
-                PsiReferenceExpression methodExp = methodCallExp.getMethodExpression();
-                PsiMethod method = methodCallExp.resolveMethod();
-                PsiExpression methodCallRef = methodExp.getQualifierExpression();
-                if (method != null) {
-                    if (!HardcodedMethodConstants.GET.equals(method.getName()) || !isReferenceVariable(methodCallRef)) {
-                        this.isIndexOnlyUsedForReferenceAccess = false;
-                    } else {
-                        checkForQualifierInFrontOfGetCall(methodCallRef, methodCallExp);
+                    checkForQualifierInFrontOfGetCall(methodCallRef, methodCallExp);
+                    if (methodCallExp.getArgumentList().getExpressionCount() == 1) {
+                        checkForForEachReplacement(methodCallExp);
                     }
                 }
-            } else {
-                this.isIndexOnlyUsedForReferenceAccess = false;
             }
+        } else {
+            this.isIndexOnlyUsedForReferenceAccess = false;
+        }
+    }
+
+    private void visitReferenceVariableReference(PsiReferenceExpression expression) {
+        PsiExpression reference = getOutermostParentheses(expression);
+        PsiElement parent = reference.getParent();
+        PsiMethodCallExpression methodCallExp = getCallQualifiedBy(reference);
+        if (methodCallExp != null) {
+            // Primarily check if the list is modified through remove() or clear() calls
+            PsiMethod method = this.context.resolveMethod(methodCallExp);
+            if (method != null) {
+                String methodName = method.getName();
+                if (methodName.contains(HardcodedMethodConstants.REMOVE) || methodName.equals("clear")) {
+                    this.isModified = true;
+                }
+            }
+        } else if (parent instanceof PsiArrayAccessExpression) {
+            // In this case, the array is being modified by reassigning an element by index
+            PsiArrayAccessExpression arrayExp = (PsiArrayAccessExpression) parent;
+            if (reference.equals(arrayExp.getArrayExpression()) && isAssignedTo(arrayExp)) {
+                this.isModified = true;
+            }
+        } else if (isAssignedTo(reference)) {
+            // In this case, the reference variable is being reassigned, regardless of whether it is a list or array
+            this.isReassigned = true;
         }
-        super.visitReferenceExpression(expression);
     }
 
     private void checkForQualifierInFrontOfGetCall(PsiExpression expression, PsiExpression accessExpression) {
@@ -71,90 +117,35 @@ public class IndexedLoopVisitor extends JavaRecursiveElementWalkingVisitor {
         }
     }
 
-    @Override
-    public void visitMethodCallExpression(PsiMethodCallExpression expression) {
-        // Primarily check if the list is modified through remove() or clear() calls
-        PsiReferenceExpression methodExp = expression.getMethodExpression();
-        PsiMethod method = expression.resolveMethod();
-        if (method != null) {
-            String methodName = method.getName();
-            if (isReferenceVariable(methodExp.getQualifierExpression())
-                    && (methodName.contains(HardcodedMethodConstants.REMOVE) || methodName.equals("clear"))) {
-                this.isModified = true;
-            }
+    private void checkForForEachReplacement(PsiExpression accessExpression) {
+        // Check if the access is the initializer of a local variable. If so, note the local variable to
+        // pass onto the slow loop code smell constructor
+        if (this.forEachReplacement == null) {
+            this.forEachReplacement = getDeclaredVariableInitializedBy(accessExpression);
         }
-        super.visitMethodCallExpression(expression);
-    }
-
-    @Override
-    public void visitAssignmentExpression(PsiAssignmentExpression expression) {
-        PsiExpression lhs = expression.getLExpression();
-        if (lhs instanceof PsiArrayAccessExpression) {
-            // In this case, the array is being modified by reassigning an element by index
-            PsiArrayAccessExpression arrayExp = (PsiArrayAccessExpression) lhs;
-            if (isReferenceVariable(arrayExp.getArrayExpression())) {
-                this.isModified = true;
-            }
-        } else if (isReferenceVariable(lhs)) {
-            // In this case, the reference variable is being reassigned, regardless of whether it is a list or array
-            this.isReassigned = true;
-        }
-
-        super.visitAssignmentExpression(expression);
-    }
-
-    @Override
-    public void visitDeclarationStatement(PsiDeclarationStatement statement) {
-        PsiElement[] elements =  statement.getDeclaredElements();
-        for (PsiElement element : elements) {
-            if (element instanceof PsiLocalVariable) {
-                PsiLocalVariable declaredVariable = (PsiLocalVariable) element;
-                PsiExpression initializer = declaredVariable.getInitializer();
-                // Check if initializer is array access or get method call. If so, note the local variable to
-                // pass onto the slow loop code smell constructor
-                if (initializer instanceof PsiArrayAccessExpression) {
-                    PsiArrayAccessExpression arrayExp = (PsiArrayAccessExpression) initializer;
-                    if (this.forEachReplacement == null && isReferenceVariable(arrayExp.getArrayExpression())
-                            && isIndexVariable(arrayExp.getIndexExpression())) {
-                        this.forEachReplacement = declaredVariable;
-                    }
-                } else if (initializer instanceof PsiMethodCallExpression) {
-                    PsiMethodCallExpression methodCallExp = (PsiMethodCallExpression) initializer;
-                    PsiReferenceExpression methodExp = methodCallExp.getMethodExpression();
-                    PsiMethod method = methodCallExp.resolveMethod();
-                    PsiExpressionList args = methodCallExp.getArgumentList();
-                    if (method != null && args.getExpressionCount() == 1) {
-                        PsiExpression possibleIndex = args.getExpressions()[0];
-                        if (this.forEachReplacement == null && HardcodedMethodConstants.GET.equals(method.getName())
-                                && isReferenceVariable(methodExp.getQualifierExpression()) && isIndexVariable(possibleIndex)) {
-                            this.forEachReplacement = declaredVariable;
-                        }
-                    }
-                }
-            }
-        }
-        super.visitDeclarationStatement(statement);
     }
 
     private boolean isReferenceVariable(PsiExpression expression) {
-        return VariableAccessUtils.evaluatesToVariable(expression, this.referenceVariable);
+        return this.context.isReferenceTo(expression, this.referenceVariable);
     }
 
-    private boolean isIndexVariable(PsiExpression expression) {
-        return VariableAccessUtils.evaluatesToVariable(expression, this.indexVariable);
+    @Override
+    public boolean isRuledOut() {
+        return this.isModified || this.isReassigned || !this.isIndexOnlyUsedForReferenceAccess || this.hasNonThisQualifierBeforeAccessExpression;
     }
 
     private boolean isSimpleForLoop() {
-        return this.accessExpression != null && !this.isModified && !this.isReassigned && this.isIndexOnlyUsedForReferenceAccess && !this.hasNonThisQualifierBeforeAccessExpression;
+        return this.accessExpression != null && !isRuledOut();
     }
 
+    @Override
     public SlowLoopCodeSmell getConstructedCodeSmell(PsiForStatement forStatement) {
         // If the for statement is not simple in the sense of only using the index for retrieving the item
         // at that position in the reference, the loop is not a Slow Loop code smell
         if (isSimpleForLoop()) {
             PsiType referenceVariableType = this.referenceVariable.getType();
             if (referenceVariableType instanceof PsiArrayType) {
-                return new SlowLoopCodeSmell(forStatement, this.referenceVariable, this.accessExpression,  this.forEachReplacement);
+                return new SlowLoopCodeSmell(forStatement, this.referenceVariable, this.accessExpression, this.forEachReplacement, this.context);
             } else if (InheritanceUtil.isInheritor(referenceVariableType, CommonClassNames.JAVA_UTIL_LIST)) {
                 PsiExpression listInitializer = this.referenceVariable.getInitializer();
                 PsiType listVariableType = listInitializer == null ? referenceVariableType : listInitializer.getType();
@@ -165,7 +156,7 @@ public class IndexedLoopVisitor extends JavaRecursiveElementWalkingVisitor {
                     return null;
                 }
 
-                return new SlowLoopCodeSmell(forStatement, this.referenceVariable, this.accessExpression, this.forEachReplacement);
+                return new SlowLoopCodeSmell(forStatement, this.referenceVariable, this.accessExpression, this.forEachReplacement, this.context);
             }
         }
         return null;
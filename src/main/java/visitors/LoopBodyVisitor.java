@@ -0,0 +1,91 @@
+package visitors;
+
+import codesmell.slowloop.SlowLoopCodeSmell;
+import com.intellij.psi.*;
+import detection.FileAnalysisContext;
+
+import java.util.Set;
+
+/**
+ * Inspects the body of a possible Slow Loop by looking only at the references to the variables it tracks.
+ * The body can either be walked on its own through {@link #walk(PsiElement)}, or the references can be fed in
+ * by a traversal shared with the other detectors, as done by the {@link SourceCodeVisitor}. In both cases the
+ * inspection stops as soon as the loop is ruled out.
+ */
+public abstract class LoopBodyVisitor {
+
+    protected final FileAnalysisContext context;
+
+    protected LoopBodyVisitor(FileAnalysisContext context) {
+        this.context = context;
+    }
+
+    public abstract Set<PsiVariable> getTrackedVariables();
+
+    public abstract void visitVariableReference(PsiReferenceExpression expression, PsiVariable variable);
+
+    public abstract boolean isRuledOut();
+
+    public abstract SlowLoopCodeSmell getConstructedCodeSmell(PsiForStatement forStatement);
+
+    public void walk(PsiElement body) {
+        Set<PsiVariable> trackedVariables = getTrackedVariables();
+        body.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitReferenceExpression(PsiReferenceExpression expression) {
+                PsiVariable variable = resolveVariable(expression, LoopBodyVisitor.this.context);
+                if (variable != null && trackedVariables.contains(variable)) {
+                    visitVariableReference(expression, variable);
+                    if (isRuledOut()) {
+                        stopWalking();
+                        return;
+                    }
+                }
+                super.visitReferenceExpression(expression);
+            }
+        });
+    }
+
+    public static PsiVariable resolveVariable(PsiReferenceExpression expression, FileAnalysisContext context) {
+        // The method name of a call can never refer to a variable, so avoid resolving it
+        if (expression.getParent() instanceof PsiMethodCallExpression) {
+            return null;
+        }
+        PsiElement resolved = context.resolve(expression);
+        return resolved instanceof PsiVariable ? (PsiVariable) resolved : null;
+    }
+
+    protected static PsiExpression getOutermostParentheses(PsiExpression expression) {
+        PsiExpression outermost = expression;
+        while (outermost.getParent() instanceof PsiParenthesizedExpression) {
+            outermost = (PsiExpression) outermost.getParent();
+        }
+        return outermost;
+    }
+
+    protected static PsiMethodCallExpression getCallQualifiedBy(PsiExpression qualifier) {
+        PsiElement parent = qualifier.getParent();
+        if (parent instanceof PsiReferenceExpression && parent.getParent() instanceof PsiMethodCallExpression
+                && qualifier.equals(((PsiReferenceExpression) parent).getQualifierExpression())) {
+            return (PsiMethodCallExpression) parent.getParent();
+        }
+        return null;
+    }
+
+    protected static boolean isAssignedTo(PsiExpression expression) {
+        PsiElement parent = expression.getParent();
+        return parent instanceof PsiAssignmentExpression && expression.equals(((PsiAssignmentExpression) parent).getLExpression());
+    }
+
+    protected static PsiLocalVariable getDeclaredVariableInitializedBy(PsiExpression initializer) {
+        PsiElement parent = initializer.getParent();
+        if (parent instanceof PsiLocalVariable && parent.getParent() instanceof PsiDeclarationStatement) {
+            PsiLocalVariable declaredVariable = (PsiLocalVariable) parent;
+            if (initializer.equals(declaredVariable.getInitializer())) {
+                return declaredVariable;
+            }
+        }
+        return null;
+    }
+
+}
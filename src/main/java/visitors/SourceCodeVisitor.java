@@ -1,45 +1,117 @@
 package visitors;
 
+import codesmell.AbstractCodeSmell;
 import codesmell.CodeSmell;
-import codesmell.heavyasynctask.HeavyAsyncTaskCodeSmell;
-import codesmell.slowloop.SlowLoopCodeSmell;
-import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiForStatement;
-import detection.DetectHeavyAsyncTask;
-import detection.DetectSlowLoop;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.*;
+import detection.CodeSmellDetector;
+import detection.CodeSmellDetectors;
+import detection.FileAnalysisContext;
+import profiling.ScanProfiler;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.*;
 
-public class SourceCodeVisitor extends JavaRecursiveElementWalkingVisitor {
+/**
+ * Walks a file once and feeds every registered {@link CodeSmellDetector} from that single traversal. Each element is
+ * only dispatched to the detectors declaring its type, and their cheap checks all run before any of them inspects
+ * the element. The bodies they then need to inspect are handed to them as the walk passes through, instead of each
+ * detector walking those bodies again on its own.
+ */
+public class SourceCodeVisitor extends PsiRecursiveElementWalkingVisitor {
 
     private final Set<CodeSmell> identifiedCodeSmells;
+    private final FileAnalysisContext context;
+    private final ScanProfiler profiler;
 
-    public SourceCodeVisitor() {
+    // Sessions of the detectors that have had a candidate in this file, in the order they were started
+    private final Map<CodeSmellDetector, CodeSmellDetector.Session> sessions = new LinkedHashMap<>();
+    // Reused for every element, to remember which interested detectors passed their cheap checks
+    private boolean[] isCandidate = new boolean[0];
+
+    public SourceCodeVisitor(FileAnalysisContext context) {
+        this(context, ScanProfiler.DISABLED);
+    }
+
+    public SourceCodeVisitor(FileAnalysisContext context, ScanProfiler profiler) {
         this.identifiedCodeSmells = new LinkedHashSet<>();
+        this.context = context;
+        this.profiler = profiler;
     }
 
     @Override
-    public void visitForStatement(PsiForStatement forStatement) {
-        SlowLoopCodeSmell possibleSlowLoop = DetectSlowLoop.checkForSlowLoop(forStatement);
-        if (possibleSlowLoop != null) {
-            this.identifiedCodeSmells.add(possibleSlowLoop);
+    public void visitElement(PsiElement element) {
+        for (Map.Entry<CodeSmellDetector, CodeSmellDetector.Session> entry : this.sessions.entrySet()) {
+            CodeSmellDetector.Session session = entry.getValue();
+            if (session.isWatching()) {
+                long start = this.profiler.start();
+                session.visitElement(element);
+                this.profiler.detectorFinished(entry.getKey().getName(), start);
+            }
         }
-        super.visitForStatement(forStatement);
+        CodeSmellDetector[] detectors = CodeSmellDetectors.getInterested(element);
+        if (detectors.length > 0) {
+            dispatch(element, detectors);
+        }
+        super.visitElement(element);
+    }
+
+    private void dispatch(PsiElement element, CodeSmellDetector[] detectors) {
+        if (this.isCandidate.length < detectors.length) {
+            this.isCandidate = new boolean[detectors.length];
+        }
+        // Run every cheap check first, so that no detector pays for another's expensive inspection of the element
+        boolean hasCandidate = false;
+        for (int i = 0; i < detectors.length; i++) {
+            long start = this.profiler.start();
+            this.isCandidate[i] = detectors[i].isCandidate(element, this.context);
+            this.profiler.detectorFinished(detectors[i].getName(), start);
+            hasCandidate |= this.isCandidate[i];
+        }
+        if (!hasCandidate) {
+            return;
+        }
+        for (int i = 0; i < detectors.length; i++) {
+            if (this.isCandidate[i]) {
+                // Give pending write actions a chance to interrupt the analysis between detector runs
+                ProgressManager.checkCanceled();
+                long start = this.profiler.start();
+                getSession(detectors[i]).visitCandidate(element);
+                this.profiler.detectorFinished(detectors[i].getName(), start);
+            }
+        }
+    }
+
+    private CodeSmellDetector.Session getSession(CodeSmellDetector detector) {
+        CodeSmellDetector.Session session = this.sessions.get(detector);
+        if (session == null) {
+            session = detector.createSession(this.context, this.profiler);
+            this.sessions.put(detector, session);
+        }
+        return session;
     }
 
     @Override
-    public void visitClass(PsiClass aClass) {
-        HeavyAsyncTaskCodeSmell possibleHeavyAsyncTask = DetectHeavyAsyncTask.checkForHeavyAsyncTask(aClass);
-        if (possibleHeavyAsyncTask != null) {
-            this.identifiedCodeSmells.add(possibleHeavyAsyncTask);
+    protected void elementFinished(PsiElement element) {
+        for (Map.Entry<CodeSmellDetector, CodeSmellDetector.Session> entry : this.sessions.entrySet()) {
+            long start = this.profiler.start();
+            addCodeSmell(entry.getValue().elementFinished(element));
+            this.profiler.detectorFinished(entry.getKey().getName(), start);
+        }
+    }
+
+    private void addCodeSmell(AbstractCodeSmell possibleCodeSmell) {
+        if (possibleCodeSmell == null) {
+            return;
+        }
+        // Identical code smells in the same member are numbered in the order the walk finishes them
+        int occurrence = 0;
+        while (!this.identifiedCodeSmells.add(possibleCodeSmell)) {
+            possibleCodeSmell.setOccurrence(++occurrence);
         }
-        super.visitClass(aClass);
     }
 
     public Set<CodeSmell> getIdentifiedCodeSmells() {
         return this.identifiedCodeSmells;
     }
 
-}
\ No newline at end of file
+}
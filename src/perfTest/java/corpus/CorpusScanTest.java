@@ -0,0 +1,88 @@
+package corpus;
+
+import actions.AddressCodeSmellsAction;
+import codesmell.CodeSmellPointer;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs the full detection task over generated corpora and fails if the results are wrong or the scan goes over its
+ * wall-clock or retained heap budget. Budgets can be overridden with
+ * {@code -DcodeSmells.budget.<files>.millis=...} and {@code -DcodeSmells.budget.<files>.heapMb=...}.
+ */
+public class CorpusScanTest extends LightCodeInsightFixtureTestCase {
+
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return JAVA_8;
+    }
+
+    public void testScan1kFiles() throws Exception {
+        assertScanWithinBudget(1000, 20000, 256);
+    }
+
+    public void testScan10kFiles() throws Exception {
+        assertScanWithinBudget(10000, 120000, 1024);
+    }
+
+    public void testScan50kFiles() throws Exception {
+        assertScanWithinBudget(50000, 600000, 4096);
+    }
+
+    private void assertScanWithinBudget(int fileCount, long defaultMillisBudget, long defaultHeapMbBudget) throws Exception {
+        long millisBudget = Long.getLong("codeSmells.budget." + fileCount + ".millis", defaultMillisBudget);
+        long heapMbBudget = Long.getLong("codeSmells.budget." + fileCount + ".heapMb", defaultHeapMbBudget);
+
+        SyntheticAndroidCorpus corpus = new SyntheticAndroidCorpus(fileCount);
+        corpus.generate(ModuleRootManager.getInstance(getModule()).getSourceRoots()[0]);
+
+        long heapBefore = getUsedHeapAfterGc();
+        long start = System.currentTimeMillis();
+        AddressCodeSmellsAction.DetectCodeSmellsTask task = new AddressCodeSmellsAction.DetectCodeSmellsTask(getProject());
+        // Backgroundable tasks run synchronously in tests
+        ProgressManager.getInstance().run(task);
+        long wallTime = System.currentTimeMillis() - start;
+        List<CodeSmellPointer> codeSmells = task.getCodeSmells();
+        // Measured while the results are still reachable, so this is what a finished scan keeps alive
+        long retainedHeap = getUsedHeapAfterGc() - heapBefore;
+
+        long retainedHeapMb = retainedHeap / (1024 * 1024);
+        System.out.println(codeSmells.size() + " code smell(s) in " + fileCount + " file(s). Wall-clock time: " + wallTime
+                + " ms. Retained heap: " + retainedHeapMb + " MB.");
+
+        assertEquals(corpus.getExpectedSlowLoopFiles(), getFilesWithCodeSmell(codeSmells, "Slow Loop"));
+        assertEquals(corpus.getExpectedHeavyAsyncTaskFiles(), getFilesWithCodeSmell(codeSmells, "Heavy AsyncTask"));
+        assertEquals(corpus.getExpectedSlowLoopFiles().size() + corpus.getExpectedHeavyAsyncTaskFiles().size(),
+                codeSmells.size());
+
+        assertTrue("Scan of " + fileCount + " files took " + wallTime + " ms, over the budget of " + millisBudget + " ms",
+                wallTime <= millisBudget);
+        assertTrue("Scan of " + fileCount + " files retained " + retainedHeapMb + " MB, over the budget of " + heapMbBudget + " MB",
+                retainedHeapMb <= heapMbBudget);
+    }
+
+    private static Set<String> getFilesWithCodeSmell(List<CodeSmellPointer> codeSmells, String name) {
+        Set<String> fileNames = new HashSet<>();
+        for (CodeSmellPointer codeSmell : codeSmells) {
+            if (codeSmell.getName().equals(name)) {
+                fileNames.add(codeSmell.getVirtualFile().getName());
+            }
+        }
+        return fileNames;
+    }
+
+    private static long getUsedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
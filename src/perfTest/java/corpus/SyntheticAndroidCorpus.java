@@ -0,0 +1,174 @@
+package corpus;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Deterministic corpus of Android-style sources with a known number of Slow Loops and Heavy AsyncTasks.
+ * Files cycle through four kinds: a Slow Loop next to a loop that must not be flagged, a Heavy AsyncTask,
+ * an AsyncTask that only updates the UI, and a plain class with a loop that must not be flagged.
+ */
+public class SyntheticAndroidCorpus {
+
+    private static final int FILES_PER_PACKAGE = 500;
+
+    private static final String[][] ANDROID_STUBS = {
+            {"android/os", "AsyncTask.java",
+                    "package android.os;\n" +
+                    "public abstract class AsyncTask<Params, Progress, Result> {\n" +
+                    "    protected abstract Result doInBackground(Params... params);\n" +
+                    "    protected void onPreExecute() {}\n" +
+                    "    protected void onProgressUpdate(Progress... values) {}\n" +
+                    "    protected void onPostExecute(Result result) {}\n" +
+                    "}\n"},
+            {"android/view", "View.java",
+                    "package android.view;\n" +
+                    "public class View {\n" +
+                    "    public void setVisibility(int visibility) {}\n" +
+                    "}\n"},
+            {"android/widget", "TextView.java",
+                    "package android.widget;\n" +
+                    "public class TextView extends android.view.View {\n" +
+                    "    public void setText(CharSequence text) {}\n" +
+                    "}\n"}
+    };
+
+    private final int fileCount;
+    private final Set<String> expectedSlowLoopFiles = new LinkedHashSet<>();
+    private final Set<String> expectedHeavyAsyncTaskFiles = new LinkedHashSet<>();
+
+    public SyntheticAndroidCorpus(int fileCount) {
+        this.fileCount = fileCount;
+        for (int i = 0; i < fileCount; i++) {
+            if (i % 4 == 0) {
+                this.expectedSlowLoopFiles.add(getFileName(i));
+            } else if (i % 4 == 1) {
+                this.expectedHeavyAsyncTaskFiles.add(getFileName(i));
+            }
+        }
+    }
+
+    /**
+     * Writes the Android stubs and every file of the corpus under the given source root in a single write action.
+     */
+    public void generate(VirtualFile sourceRoot) throws IOException {
+        WriteAction.run(() -> {
+            for (String[] stub : ANDROID_STUBS) {
+                createFile(sourceRoot, stub[0], stub[1], stub[2]);
+            }
+            for (int i = 0; i < this.fileCount; i++) {
+                String packageName = getPackageName(i);
+                createFile(sourceRoot, packageName.replace('.', '/'), getFileName(i), getSource(i, packageName));
+            }
+        });
+    }
+
+    public int getFileCount() {
+        return this.fileCount;
+    }
+
+    public Set<String> getExpectedSlowLoopFiles() {
+        return this.expectedSlowLoopFiles;
+    }
+
+    public Set<String> getExpectedHeavyAsyncTaskFiles() {
+        return this.expectedHeavyAsyncTaskFiles;
+    }
+
+    private static void createFile(VirtualFile sourceRoot, String directory, String name, String text) throws IOException {
+        VirtualFile parent = VfsUtil.createDirectoryIfMissing(sourceRoot, directory);
+        VirtualFile file = parent.createChildData(SyntheticAndroidCorpus.class, name);
+        VfsUtil.saveText(file, text);
+    }
+
+    private static String getPackageName(int i) {
+        return "corpus.p" + (i / FILES_PER_PACKAGE);
+    }
+
+    private static String getClassName(int i) {
+        switch (i % 4) {
+            case 0:
+                return "SlowLoop" + i;
+            case 1:
+                return "HeavyAsyncTask" + i;
+            case 2:
+                return "LightAsyncTask" + i;
+            default:
+                return "Plain" + i;
+        }
+    }
+
+    private static String getFileName(int i) {
+        return getClassName(i) + ".java";
+    }
+
+    private static String getSource(int i, String packageName) {
+        String className = getClassName(i);
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(packageName).append(";\n");
+        sb.append("import java.util.*;\n");
+        sb.append("import android.os.AsyncTask;\n");
+        sb.append("import android.widget.TextView;\n");
+        switch (i % 4) {
+            case 0:
+                sb.append("public class ").append(className).append(" {\n");
+                appendSlowLoop(sb);
+                appendCleanLoop(sb);
+                sb.append("}\n");
+                break;
+            case 1:
+                sb.append("public class ").append(className).append(" extends AsyncTask<Integer, Integer, Integer> {\n");
+                sb.append("    private TextView label;\n");
+                sb.append("    private int compute(int value) { return value * value; }\n");
+                sb.append("    protected Integer doInBackground(Integer... params) { return params.length; }\n");
+                sb.append("    protected void onPostExecute(Integer result) {\n");
+                sb.append("        int squared = compute(").append(i).append(");\n");
+                sb.append("        label.setText(String.valueOf(result));\n");
+                sb.append("    }\n");
+                sb.append("}\n");
+                break;
+            case 2:
+                sb.append("public class ").append(className).append(" extends AsyncTask<Integer, Integer, Integer> {\n");
+                sb.append("    private TextView label;\n");
+                sb.append("    protected Integer doInBackground(Integer... params) { return params.length; }\n");
+                sb.append("    protected void onPostExecute(Integer result) {\n");
+                sb.append("        label.setText(String.valueOf(result));\n");
+                sb.append("    }\n");
+                sb.append("}\n");
+                break;
+            default:
+                sb.append("public class ").append(className).append(" {\n");
+                sb.append("    private final int id = ").append(i).append(";\n");
+                appendCleanLoop(sb);
+                sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    private static void appendSlowLoop(StringBuilder sb) {
+        sb.append("    int sum(List<Integer> values) {\n");
+        sb.append("        int sum = 0;\n");
+        sb.append("        for (int i = 0; i < values.size(); i++) {\n");
+        sb.append("            sum += values.get(i);\n");
+        sb.append("        }\n");
+        sb.append("        return sum;\n");
+        sb.append("    }\n");
+    }
+
+    private static void appendCleanLoop(StringBuilder sb) {
+        // The index is used for more than element access, so this loop cannot be turned into a for-each loop
+        sb.append("    int weightedSum(List<Integer> values) {\n");
+        sb.append("        int sum = 0;\n");
+        sb.append("        for (int i = 0; i < values.size(); i++) {\n");
+        sb.append("            sum += values.get(i) * i;\n");
+        sb.append("        }\n");
+        sb.append("        return sum;\n");
+        sb.append("    }\n");
+    }
+
+}